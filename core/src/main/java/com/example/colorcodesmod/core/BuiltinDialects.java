@@ -0,0 +1,471 @@
+package com.example.colorcodesmod.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.colorcodesmod.core.ColorCodeLexer.HEX_LENGTH;
+import static com.example.colorcodesmod.core.ColorCodeLexer.SEGMENTED_HEX_LENGTH;
+import static com.example.colorcodesmod.core.ColorCodeLexer.hexValue;
+import static com.example.colorcodesmod.core.ColorCodeLexer.legacyCode;
+import static com.example.colorcodesmod.core.ColorCodeLexer.parseHex;
+import static com.example.colorcodesmod.core.ColorCodeLexer.parseSegmentedHex;
+
+/**
+ * The dialects the mod ships with, in the order they are registered.
+ */
+final class BuiltinDialects {
+    private BuiltinDialects() {
+    }
+
+    static List<FormatDialect> all() {
+        return List.of(
+            new Legacy('&', 0),
+            new Legacy('§', ColorCodeLexer.FLAG_SECTION_SIGN),
+            new SegmentedHex(),
+            new Hex("#", ColorCodeLexer.FLAG_HEX),
+            new Hex("&#", ColorCodeLexer.FLAG_AMPERSAND_HEX),
+            new Gradient(),
+            new HexTag(),
+            new NamedTags()
+        );
+    }
+
+    // True when every character of [offset, end) is a hex digit
+    private static boolean allHex(CharSequence text, int offset, int end) {
+        for (int k = offset; k < end; k++) {
+            if (hexValue(text.charAt(k)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code &<code>} or {@code §<code>}: colors 0-f, formattings k-o and reset r.
+     */
+    private record Legacy(char marker, int flag) implements FormatDialect {
+        @Override
+        public List<String> prefixes() {
+            return List.of(String.valueOf(marker));
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return 2;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            return offset + 1 < end && legacyCode(text.charAt(offset + 1)) != 0 ? offset + 2 : -1;
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            sink.token(offset, codeEnd);
+            sink.code(legacyCode(text.charAt(offset + 1)));
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            return end - offset == 1;
+        }
+    }
+
+    /**
+     * {@code &X&R&R&G&G&B&B}, with either case of the x.
+     */
+    private static final class SegmentedHex implements FormatDialect {
+        @Override
+        public int flag() {
+            return ColorCodeLexer.FLAG_SEGMENTED_HEX;
+        }
+
+        @Override
+        public List<String> prefixes() {
+            return List.of("&X", "&x");
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return SEGMENTED_HEX_LENGTH;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            return parseSegmentedHex(text, offset, end) >= 0 ? offset + SEGMENTED_HEX_LENGTH : -1;
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            sink.token(offset, codeEnd);
+            sink.color(parseSegmentedHex(text, offset, end));
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            if (end - offset >= SEGMENTED_HEX_LENGTH) {
+                return false;
+            }
+            for (int k = offset + 2; k < end; k++) {
+                boolean valid = ((k - offset) & 1) == 0 ? text.charAt(k) == '&' : hexValue(text.charAt(k)) >= 0;
+                if (!valid) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Six hex digits after a fixed marker: {@code #RRGGBB} or {@code &#RRGGBB}.
+     */
+    private record Hex(String marker, int flag) implements FormatDialect {
+        @Override
+        public List<String> prefixes() {
+            return List.of(marker);
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return marker.length() + 6;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            int digits = offset + marker.length();
+            return digits + 6 <= end && parseHex(text, digits) >= 0 ? digits + 6 : -1;
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            sink.token(offset, codeEnd);
+            sink.color(parseHex(text, offset + marker.length()));
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            return end - offset < marker.length() + 6 && allHex(text, offset + marker.length(), end);
+        }
+    }
+
+    /**
+     * {@code <#RRGGBB>}, a hex color written as a tag.
+     */
+    private static final class HexTag implements FormatDialect {
+        private static final int LENGTH = 9;
+
+        @Override
+        public int flag() {
+            return ColorCodeLexer.FLAG_HEX_TAG;
+        }
+
+        @Override
+        public List<String> prefixes() {
+            return List.of("<#");
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return LENGTH;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            return offset + LENGTH <= end && text.charAt(offset + LENGTH - 1) == '>' && parseHex(text, offset + 2) >= 0
+                ? offset + LENGTH : -1;
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            sink.token(offset, codeEnd);
+            sink.color(parseHex(text, offset + 2));
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            return end - offset < LENGTH && allHex(text, offset + 2, Math.min(end, offset + LENGTH - 1));
+        }
+    }
+
+    /**
+     * A MiniMessage-like subset: {@code <red>}, {@code <bold>}, {@code <reset>} and so on.
+     * Closing tags such as {@code </bold>} turn their style off again. There is no tag stack,
+     * so closing a color falls back to no color rather than to the color before it.
+     */
+    private static final class NamedTags implements FormatDialect {
+        // Indexed by legacy color
+        private static final String[] COLORS = {
+            "black", "dark_blue", "dark_green", "dark_aqua", "dark_red", "dark_purple", "gold", "gray",
+            "dark_gray", "blue", "green", "aqua", "red", "light_purple", "yellow", "white"
+        };
+
+        private final List<String> prefixes = new ArrayList<>();
+        // Per prefix: the legacy code it stands for, and whether it is a closing tag
+        private final StringBuilder codes = new StringBuilder();
+        private final List<Boolean> closing = new ArrayList<>();
+        private int maxLength;
+
+        private NamedTags() {
+            for (int color = 0; color < COLORS.length; color++) {
+                add(COLORS[color], Character.forDigit(color, 16));
+            }
+            add("grey", '7');
+            add("dark_grey", '8');
+            addAll('l', "bold", "b");
+            addAll('o', "italic", "i", "em");
+            addAll('n', "underlined", "u");
+            addAll('m', "strikethrough", "st");
+            addAll('k', "obfuscated", "obf");
+            addTag("<reset>", 'r', false);
+        }
+
+        private void addAll(char code, String... names) {
+            for (String name : names) {
+                add(name, code);
+            }
+        }
+
+        private void add(String name, char code) {
+            addTag("<" + name + ">", code, false);
+            addTag("</" + name + ">", code, true);
+        }
+
+        private void addTag(String tag, char code, boolean isClosing) {
+            prefixes.add(tag);
+            codes.append(code);
+            closing.add(isClosing);
+            maxLength = Math.max(maxLength, tag.length());
+        }
+
+        @Override
+        public int flag() {
+            return ColorCodeLexer.FLAG_NAMED_TAGS;
+        }
+
+        @Override
+        public List<String> prefixes() {
+            return prefixes;
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return maxLength;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            // The prefix is the whole tag
+            return offset + prefixes.get(prefix).length();
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            char code = codes.charAt(prefix);
+            int legacyColor = hexValue(code);
+            sink.token(offset, codeEnd);
+            if (closing.get(prefix)) {
+                sink.clear(StyleState.formattingBit(code), legacyColor >= 0);
+            } else if (legacyColor >= 0) {
+                // Unlike a legacy color code, a color tag keeps the active formattings
+                sink.color(StyleState.legacyRgb(legacyColor));
+            } else {
+                sink.code(code);
+            }
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            return false;
+        }
+    }
+
+    /**
+     * Gradient ({@code <#RRGGBB:#RRGGBB>text</>}) and rainbow ({@code <rainbow>text</rainbow>})
+     * tags, which color every glyph up to the closing tag.
+     * <p>
+     * Inside, only {@code &} legacy codes (such as {@code &l}) are recognized, whatever other
+     * dialects are enabled; {@code §} codes, tags and hex colors there stay literal text and are
+     * colored along with the rest.
+     */
+    private static final class Gradient implements FormatDialect {
+        private static final String RAINBOW_TAG = "<rainbow>";
+        private static final String CLOSE_TAG = "</>";
+        private static final String RAINBOW_CLOSE_TAG = "</rainbow>";
+
+        @Override
+        public int flag() {
+            return ColorCodeLexer.FLAG_GRADIENT;
+        }
+
+        @Override
+        public List<String> prefixes() {
+            return List.of("<#", RAINBOW_TAG);
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return ColorCodeLexer.GRADIENT_TAG_LENGTH;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            int tagLength = tagLength(text, offset, end);
+            return tagLength > 0 ? offset + tagLength : -1;
+        }
+
+        /**
+         * Emits one color per glyph, computed over the glyphs between the tags. Only the tags
+         * are reported as codes; the glyph colors go through interpolatedColor(). Legacy codes
+         * inside still apply, and the closing tag resets the style.
+         */
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            int contentStart = codeEnd;
+            int close = findCloseTag(text, contentStart, end);
+            int contentEnd = close >= 0 ? close : Math.min(end, contentStart + ColorCodeLexer.MAX_GRADIENT_SPAN);
+            int groupEnd = close >= 0 ? close + closeTagLength(text, close, end) : contentEnd;
+
+            int glyphs = 0;
+            for (int p = contentStart; p < contentEnd; ) {
+                if (isLegacyCodeAt(text, p, contentEnd)) {
+                    p += 2;
+                } else {
+                    p = glyphEnd(text, p, contentEnd);
+                    glyphs++;
+                }
+            }
+
+            int[] colors;
+            int firstColor;
+            if (codeEnd - offset == ColorCodeLexer.GRADIENT_TAG_LENGTH) {
+                int from = parseHex(text, offset + 2);
+                colors = ColorGradients.gradient(from, parseHex(text, offset + 10), glyphs);
+                firstColor = from;
+            } else {
+                colors = ColorGradients.rainbow(glyphs);
+                firstColor = glyphs > 0 ? colors[0] : 0xFF0000;
+            }
+
+            sink.group(offset, groupEnd);
+            // The opening tag itself takes the first color
+            sink.token(offset, contentStart);
+            sink.color(firstColor);
+
+            int glyph = 0;
+            int p = contentStart;
+            while (p < contentEnd) {
+                if (isLegacyCodeAt(text, p, contentEnd)) {
+                    sink.token(p, p + 2);
+                    sink.code(legacyCode(text.charAt(p + 1)));
+                    p += 2;
+                    continue;
+                }
+                int glyphEnd = glyphEnd(text, p, contentEnd);
+                sink.token(p, glyphEnd);
+                sink.interpolatedColor(colors[glyph++]);
+                sink.text(text, p, glyphEnd);
+                p = glyphEnd;
+            }
+
+            if (groupEnd > contentEnd) {
+                sink.token(contentEnd, groupEnd);
+                sink.code('r');
+            }
+            return groupEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            int tagLength = tagLength(text, offset, end);
+            if (tagLength > 0) {
+                // A complete tag is open until its closing tag shows up or the span runs out
+                int contentStart = offset + tagLength;
+                return findCloseTag(text, contentStart, end) < 0
+                    && end < contentStart + ColorCodeLexer.MAX_GRADIENT_SPAN + RAINBOW_CLOSE_TAG.length();
+            }
+
+            int length = end - offset;
+            if (prefix == 1 || length >= ColorCodeLexer.GRADIENT_TAG_LENGTH) {
+                return false;
+            }
+            for (int k = 2; k < length; k++) {
+                char c = text.charAt(offset + k);
+                boolean valid = switch (k) {
+                    case 9 -> c == '#';
+                    case 8 -> c == ':';
+                    default -> hexValue(c) >= 0;
+                };
+                if (!valid) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Length of a gradient or rainbow opening tag at offset, or 0
+        private static int tagLength(CharSequence text, int offset, int end) {
+            if (offset + ColorCodeLexer.GRADIENT_TAG_LENGTH <= end
+                    && text.charAt(offset) == '<' && text.charAt(offset + 1) == '#'
+                    && text.charAt(offset + 8) == ':' && text.charAt(offset + 9) == '#'
+                    && text.charAt(offset + 16) == '>'
+                    && parseHex(text, offset + 2) >= 0 && parseHex(text, offset + 10) >= 0) {
+                return ColorCodeLexer.GRADIENT_TAG_LENGTH;
+            }
+            if (regionMatches(text, offset, end, RAINBOW_TAG)) {
+                return RAINBOW_TAG.length();
+            }
+            return 0;
+        }
+
+        // Start of the first closing tag within MAX_GRADIENT_SPAN of from, or -1
+        private static int findCloseTag(CharSequence text, int from, int end) {
+            int limit = Math.min(end - CLOSE_TAG.length(), from + ColorCodeLexer.MAX_GRADIENT_SPAN);
+            for (int p = from; p <= limit; p++) {
+                if (text.charAt(p) == '<' && closeTagLength(text, p, end) > 0) {
+                    return p;
+                }
+            }
+            return -1;
+        }
+
+        private static int closeTagLength(CharSequence text, int offset, int end) {
+            if (regionMatches(text, offset, end, CLOSE_TAG)) {
+                return CLOSE_TAG.length();
+            }
+            if (regionMatches(text, offset, end, RAINBOW_CLOSE_TAG)) {
+                return RAINBOW_CLOSE_TAG.length();
+            }
+            return 0;
+        }
+
+        private static boolean isLegacyCodeAt(CharSequence text, int offset, int end) {
+            return text.charAt(offset) == '&' && offset + 1 < end && legacyCode(text.charAt(offset + 1)) != 0;
+        }
+
+        // End of the glyph at offset, keeping surrogate pairs together
+        private static int glyphEnd(CharSequence text, int offset, int end) {
+            if (Character.isHighSurrogate(text.charAt(offset)) && offset + 1 < end
+                    && Character.isLowSurrogate(text.charAt(offset + 1))) {
+                return offset + 2;
+            }
+            return offset + 1;
+        }
+
+        private static boolean regionMatches(CharSequence text, int offset, int end, String expected) {
+            if (offset + expected.length() > end) {
+                return false;
+            }
+            for (int k = 0; k < expected.length(); k++) {
+                if (text.charAt(offset + k) != expected.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
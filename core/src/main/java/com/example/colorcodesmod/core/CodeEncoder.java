@@ -0,0 +1,242 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Turns style runs back into a code string, the reverse of {@link ColorCodeLexer}.
+ * <p>
+ * Between two runs only the shortest sequence of codes that gets from the current style to the
+ * next one is written: nothing when the two look the same, no reset when formattings are only
+ * added, and a two-character legacy code instead of a hex color whenever the color is one of the
+ * 16 legacy colors. Chat messages are capped at 256 characters, so every code saved is text
+ * that fits.
+ * <p>
+ * {@link Format#LEGACY} is for servers that strip hex colors: each hex color is replaced by the
+ * nearest legacy color from {@link LegacyPalette}.
+ * <p>
+ * The lexer has no escape, so text that happens to read as a code (the {@code &c} of
+ * {@code a&cb}, or a {@code &} right before a {@code #RRGGBB}) is kept literal by writing a code
+ * that changes nothing right after its first character. The output lexes back to the same runs
+ * with every dialect enabled.
+ */
+public final class CodeEncoder implements StyleSink {
+    /**
+     * How hex colors are written. Legacy codes always use {@code &}.
+     */
+    public enum Format {
+        // No hex colors: each one is written as the nearest legacy color
+        LEGACY(Integer.MAX_VALUE / 2),
+        // &x&R&R&G&G&B&B
+        SEGMENTED_HEX(ColorCodeLexer.SEGMENTED_HEX_LENGTH),
+        // &#RRGGBB
+        AMPERSAND_HEX(8),
+        // #RRGGBB
+        HEX(ColorCodeLexer.HEX_LENGTH),
+        // <#RRGGBB>
+        HEX_TAG(9);
+
+        private final int hexLength;
+
+        Format(int hexLength) {
+            this.hexLength = hexLength;
+        }
+
+        private void appendHex(StringBuilder out, int rgb) {
+            switch (this) {
+                case SEGMENTED_HEX -> {
+                    out.append("&x");
+                    for (int shift = 20; shift >= 0; shift -= 4) {
+                        out.append('&').append(Character.forDigit((rgb >>> shift) & 0xF, 16));
+                    }
+                }
+                case AMPERSAND_HEX -> appendDigits(out.append("&#"), rgb);
+                case HEX -> appendDigits(out.append('#'), rgb);
+                case HEX_TAG -> appendDigits(out.append("<#"), rgb).append('>');
+                case LEGACY -> throw new IllegalStateException("Legacy format has no hex colors");
+            }
+        }
+
+        private static StringBuilder appendDigits(StringBuilder out, int rgb) {
+            for (int shift = 20; shift >= 0; shift -= 4) {
+                out.append(Character.forDigit((rgb >>> shift) & 0xF, 16));
+            }
+            return out;
+        }
+    }
+
+    // Legacy codes of the StyleState formatting bits, lowest bit first
+    private static final char[] FORMATTING_CODES = {'l', 'o', 'n', 'm', 'k'};
+    private static final int CODE_LENGTH = 2;
+
+    private final Format format;
+    private final StringBuilder out;
+    // Style the codes written so far leave the reader in
+    private int state = StyleState.DEFAULT;
+
+    public CodeEncoder(Format format) {
+        this(format, new StringBuilder());
+    }
+
+    public CodeEncoder(Format format, StringBuilder out) {
+        this.format = format;
+        this.out = out;
+    }
+
+    /**
+     * Re-encodes a code string written in any of the dialects enabled by {@code flags}, e.g. a
+     * gradient a server doesn't understand, into {@code format}.
+     */
+    public static String transcode(CharSequence codes, int flags, Format format) {
+        CodeEncoder encoder = new CodeEncoder(format);
+        ColorCodeReader reader = new ColorCodeReader(flags, encoder);
+        reader.feed(codes);
+        reader.finish();
+        return encoder.toString();
+    }
+
+    @Override
+    public void run(int style, CharSequence source, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        transition(style);
+
+        // A trigger that starts a code, or might once more is written, gets a break after it
+        DialectAutomaton automaton = DialectRegistry.automaton(ColorCodeLexer.ALL_FLAGS);
+        int copied = start;
+        for (int i = automaton.nextTrigger(source, start, end); i < end; i = automaton.nextTrigger(source, i + 1, end)) {
+            if (automaton.match(source, i, end) >= 0 || automaton.isPartial(source, i, end)) {
+                out.append(source, copied, i + 1);
+                appendBreak();
+                copied = i + 1;
+            }
+        }
+        out.append(source, copied, end);
+    }
+
+    // Characters written so far
+    public int length() {
+        return out.length();
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void transition(int target) {
+        if (format == Format.LEGACY && StyleState.isRgb(target)) {
+            target = StyleState.ofLegacy(LegacyPalette.nearest(StyleState.color(target)), StyleState.formatting(target));
+        }
+
+        int fromColor = rgb(state);
+        int toColor = rgb(target);
+        int from = StyleState.formatting(state);
+        int to = StyleState.formatting(target);
+        if (fromColor == toColor && from == to) {
+            return;
+        }
+
+        int legacy = toColor >= 0 ? legacyIndex(toColor) : -1;
+        int added = to & ~from;
+        boolean keepsFormatting = (from & ~to) == 0;
+
+        // Every way to get there; a legacy color or a reset clears the formattings, a hex color doesn't
+        int best = Integer.MAX_VALUE;
+        int choice = -1;
+        if (keepsFormatting && fromColor == toColor) {
+            best = formattingLength(added);
+            choice = 0;
+        }
+        if (legacy >= 0 && CODE_LENGTH + formattingLength(to) < best) {
+            best = CODE_LENGTH + formattingLength(to);
+            choice = 1;
+        }
+        if (keepsFormatting && toColor >= 0 && format.hexLength + formattingLength(added) < best) {
+            best = format.hexLength + formattingLength(added);
+            choice = 2;
+        }
+        if (toColor < 0 && CODE_LENGTH + formattingLength(to) < best) {
+            best = CODE_LENGTH + formattingLength(to);
+            choice = 3;
+        }
+        if (toColor >= 0 && legacy < 0 && CODE_LENGTH + format.hexLength + formattingLength(to) < best) {
+            choice = 4;
+        }
+
+        switch (choice) {
+            case 0 -> appendFormatting(added);
+            case 1 -> {
+                out.append('&').append(Character.forDigit(legacy, 16));
+                appendFormatting(to);
+            }
+            case 2 -> {
+                format.appendHex(out, toColor);
+                appendFormatting(added);
+            }
+            case 3 -> {
+                out.append("&r");
+                appendFormatting(to);
+            }
+            case 4 -> {
+                out.append("&r");
+                format.appendHex(out, toColor);
+                appendFormatting(to);
+            }
+            default -> throw new IllegalStateException("No transition to style " + target);
+        }
+        state = target;
+    }
+
+    /**
+     * Writes codes that leave the style as it is. They start with {@code &} and a legacy code,
+     * which no code continues, so the character before them can't start a code anymore.
+     */
+    private void appendBreak() {
+        int formatting = StyleState.formatting(state);
+        int color = rgb(state);
+        int legacy = color >= 0 ? legacyIndex(color) : -1;
+        if (formatting != 0) {
+            appendFormatting(Integer.lowestOneBit(formatting));
+        } else if (color < 0) {
+            out.append("&r");
+        } else if (legacy >= 0) {
+            out.append('&').append(Character.forDigit(legacy, 16));
+        } else {
+            // No shorter code keeps a hex color: reset, then write the color again
+            int target = state;
+            out.append("&r");
+            state = StyleState.DEFAULT;
+            transition(target);
+        }
+    }
+
+    private void appendFormatting(int formatting) {
+        for (int bit = 0; bit < FORMATTING_CODES.length; bit++) {
+            if ((formatting & (1 << bit)) != 0) {
+                out.append('&').append(FORMATTING_CODES[bit]);
+            }
+        }
+    }
+
+    private static int formattingLength(int formatting) {
+        return Integer.bitCount(formatting) * CODE_LENGTH;
+    }
+
+    // 0xRRGGBB the state renders in, or -1 for no color
+    private static int rgb(int state) {
+        int color = StyleState.color(state);
+        if (StyleState.isRgb(state)) {
+            return color;
+        }
+        return color == StyleState.NO_COLOR ? -1 : StyleState.legacyRgb(color);
+    }
+
+    // Legacy color with exactly this RGB, or -1
+    private static int legacyIndex(int rgb) {
+        for (int color = 0; color < 16; color++) {
+            if (StyleState.legacyRgb(color) == rgb) {
+                return color;
+            }
+        }
+        return -1;
+    }
+}
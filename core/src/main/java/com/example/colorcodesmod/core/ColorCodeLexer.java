@@ -0,0 +1,248 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Single forward-pass lexer for the color code syntaxes the mod understands: legacy
+ * {@code &<code>} and {@code §<code>} formatting codes, segmented hex ({@code &X&R&R&G&G&B&B}),
+ * standard hex ({@code #RRGGBB}, {@code &#RRGGBB} and {@code <#RRGGBB>}), named tags
+ * ({@code <red>}, {@code <bold>}...), and gradient ({@code <#RRGGBB:#RRGGBB>text</>}) and
+ * rainbow ({@code <rainbow>text</rainbow>}) tags.
+ * <p>
+ * Each syntax is a {@link FormatDialect}. The dialects enabled by the flags are compiled into
+ * one trie by {@link DialectRegistry}, so the line is scanned once whichever are on.
+ * <p>
+ * Hex nibbles are decoded straight into an int and plain text is reported as
+ * {@code (start, end)} ranges of the source, so lexing a line creates no intermediate Strings.
+ */
+public final class ColorCodeLexer {
+    // "&X" followed by six "&<nibble>" pairs
+    public static final int SEGMENTED_HEX_LENGTH = 14;
+    // "#" followed by six nibbles
+    public static final int HEX_LENGTH = 7;
+
+    // "<#RRGGBB:#RRGGBB>"
+    public static final int GRADIENT_TAG_LENGTH = 17;
+    // A gradient without a closing tag stops after this many characters
+    public static final int MAX_GRADIENT_SPAN = 256;
+
+    // How far before a changed character a code can start and still be affected by the change
+    public static final int MAX_OPENING_LENGTH = GRADIENT_TAG_LENGTH;
+
+    // Syntaxes that can be switched off, mirroring the mod's config toggles
+    public static final int FLAG_HEX = 1;
+    public static final int FLAG_SEGMENTED_HEX = 1 << 1;
+    public static final int FLAG_GRADIENT = 1 << 2;
+    public static final int FLAG_AMPERSAND_HEX = 1 << 3;
+    public static final int FLAG_HEX_TAG = 1 << 4;
+    public static final int FLAG_NAMED_TAGS = 1 << 5;
+    public static final int FLAG_SECTION_SIGN = 1 << 6;
+    public static final int ALL_FLAGS = FLAG_HEX | FLAG_SEGMENTED_HEX | FLAG_GRADIENT
+        | FLAG_AMPERSAND_HEX | FLAG_HEX_TAG | FLAG_NAMED_TAGS | FLAG_SECTION_SIGN;
+
+    // Not a syntax: tells StyleTracker to report every hex color as its nearest legacy color
+    public static final int FLAG_LEGACY_COLORS_ONLY = 1 << 7;
+
+    /**
+     * Receives the tokens of a line in order.
+     */
+    public interface Sink {
+        // Plain text between codes, as a range of the source
+        void text(CharSequence source, int start, int end);
+
+        // A hex or named color, already decoded to 0xRRGGBB; keeps the active formattings
+        void color(int rgb);
+
+        // A color a gradient computed for its next glyph; like color(), but not a code of its own
+        default void interpolatedColor(int rgb) {
+            color(rgb);
+        }
+
+        // A legacy &<code> or its tag form, lower-cased (0-9, a-f, k-o, r)
+        void code(char code);
+
+        // A closing tag: turns off the given StyleState formatting bits, and the color if color is true
+        void clear(int formatting, boolean color);
+
+        // Source range of the code about to be reported through color(), code() or clear()
+        default void token(int start, int end) {
+        }
+
+        // Source range of a construct made of several tokens (a gradient), reported before them
+        default void group(int start, int end) {
+        }
+    }
+
+    private ColorCodeLexer() {
+    }
+
+    public static void lex(CharSequence text, Sink sink) {
+        lex(text, 0, text.length(), ALL_FLAGS, sink);
+    }
+
+    public static void lex(CharSequence text, int start, int end, int flags, Sink sink) {
+        int i = start;
+        while (i < end) {
+            i = lexNext(text, i, end, flags, sink);
+        }
+    }
+
+    /**
+     * Lexes from {@code start} up to and including the next code and returns the index right
+     * after it, or {@code end} when no code follows. Callers that need to stop early (e.g. once
+     * an incremental re-lex has converged) can drive the lexer one code at a time with this.
+     */
+    public static int lexNext(CharSequence text, int start, int end, int flags, Sink sink) {
+        return lexNext(text, start, end, flags, true, sink);
+    }
+
+    /**
+     * Like {@link #lexNext(CharSequence, int, int, int, Sink)}, but when {@code endOfInput} is
+     * false and the range ends in what may be the start of a code, stops right before it and
+     * returns its index instead. More input is needed to decide it, so a streaming caller should
+     * carry it over; a call that returns {@code start} made no progress.
+     */
+    public static int lexNext(CharSequence text, int start, int end, int flags, boolean endOfInput, Sink sink) {
+        DialectAutomaton automaton = DialectRegistry.automaton(flags);
+
+        int i = start;
+        while (i < end) {
+            // Jump straight over code-free text
+            i = automaton.nextTrigger(text, i, end);
+            if (i == end) {
+                break;
+            }
+
+            if (!endOfInput && automaton.isPartial(text, i, end)) {
+                emitText(text, start, i, sink);
+                return i;
+            }
+
+            long match = automaton.match(text, i, end);
+            if (match >= 0) {
+                emitText(text, start, i, sink);
+                return automaton.emit(match, text, i, end, sink);
+            }
+
+            i++;
+        }
+
+        emitText(text, start, end, sink);
+        return end;
+    }
+
+    // True when [offset, end) is a proper prefix of a code, i.e. more input could complete it
+    public static boolean isPartialCode(CharSequence text, int offset, int end, int flags) {
+        return DialectRegistry.automaton(flags).isPartial(text, offset, end);
+    }
+
+    // Index of the first code in [start, end), or -1 when the range is plain text
+    public static int indexOfCode(CharSequence text, int start, int end, int flags) {
+        DialectAutomaton automaton = DialectRegistry.automaton(flags);
+        for (int i = automaton.nextTrigger(text, start, end); i < end; i = automaton.nextTrigger(text, i + 1, end)) {
+            if (automaton.match(text, i, end) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void emitText(CharSequence text, int start, int end, Sink sink) {
+        if (start < end) {
+            sink.text(text, start, end);
+        }
+    }
+
+    /**
+     * Rewrites every {@code &X&R&R&G&G&B&B} into {@code #RRGGBB}. Returns the input instance
+     * untouched when it contains no segmented colors.
+     */
+    public static String rewriteSegmentedHex(String text) {
+        StringBuilder result = null;
+        int copied = 0;
+        int end = text.length();
+
+        int i = text.indexOf('&');
+        while (i >= 0) {
+            if (parseSegmentedHex(text, i, end) >= 0) {
+                if (result == null) {
+                    result = new StringBuilder(end);
+                }
+                result.append(text, copied, i).append('#');
+                for (int k = i + 3; k < i + SEGMENTED_HEX_LENGTH; k += 2) {
+                    result.append(text.charAt(k));
+                }
+                copied = i + SEGMENTED_HEX_LENGTH;
+                i = text.indexOf('&', copied);
+            } else {
+                i = text.indexOf('&', i + 1);
+            }
+        }
+
+        if (result == null) {
+            return text;
+        }
+        return result.append(text, copied, end).toString();
+    }
+
+    // True for exactly "#RRGGBB"
+    public static boolean isHexColor(CharSequence text) {
+        return text.length() == HEX_LENGTH && text.charAt(0) == '#' && parseHex(text, 1) >= 0;
+    }
+
+    // Decodes six hex digits starting at offset, or returns -1
+    public static int parseHex(CharSequence text, int offset) {
+        int rgb = 0;
+        for (int k = offset; k < offset + 6; k++) {
+            int nibble = hexValue(text.charAt(k));
+            if (nibble < 0) {
+                return -1;
+            }
+            rgb = (rgb << 4) | nibble;
+        }
+        return rgb;
+    }
+
+    // Decodes "&X&R&R&G&G&B&B" (or "&x...") starting at offset, or returns -1
+    public static int parseSegmentedHex(CharSequence text, int offset, int end) {
+        if (offset + SEGMENTED_HEX_LENGTH > end || text.charAt(offset) != '&'
+                || (text.charAt(offset + 1) != 'X' && text.charAt(offset + 1) != 'x')) {
+            return -1;
+        }
+
+        int rgb = 0;
+        for (int k = offset + 2; k < offset + SEGMENTED_HEX_LENGTH; k += 2) {
+            if (text.charAt(k) != '&') {
+                return -1;
+            }
+            int nibble = hexValue(text.charAt(k + 1));
+            if (nibble < 0) {
+                return -1;
+            }
+            rgb = (rgb << 4) | nibble;
+        }
+        return rgb;
+    }
+
+    public static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    // Lower-cased legacy formatting code, or 0 when c is not one
+    public static char legacyCode(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            c = (char) (c + ('a' - 'A'));
+        }
+        if ((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'k' && c <= 'o') || c == 'r') {
+            return c;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.colorcodesmod.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Streaming front end for {@link ColorCodeLexer}: input is pushed in chunks and style runs come
+ * out through a {@link StyleSink}.
+ * <p>
+ * Run ranges point into the chunk that was passed in, so text is never copied. The only thing
+ * buffered between chunks is a code cut off by a chunk boundary (at most a gradient, which is
+ * bounded by {@link ColorCodeLexer#MAX_GRADIENT_SPAN}); it is completed with the head of the next
+ * chunk, so splitting the input anywhere gives the same runs as lexing it in one piece. Memory
+ * use is constant no matter how long the input is.
+ */
+public class ColorCodeReader {
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private final int flags;
+    private final StyleTracker tracker;
+    // Head of a code that was cut off at the end of the previous chunk
+    private final StringBuilder carry = new StringBuilder(ColorCodeLexer.SEGMENTED_HEX_LENGTH * 2);
+
+    public ColorCodeReader(int flags, StyleSink sink) {
+        this.flags = flags;
+        this.tracker = new StyleTracker(sink, (flags & ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY) != 0);
+    }
+
+    public ColorCodeReader(StyleSink sink) {
+        this(ColorCodeLexer.ALL_FLAGS, sink);
+    }
+
+    // Style the next run will have
+    public int getStyleId() {
+        return tracker.getState();
+    }
+
+    public void feed(CharSequence chunk) {
+        feed(chunk, 0, chunk.length());
+    }
+
+    public void feed(CharSequence chunk, int start, int end) {
+        int i = start;
+
+        while (carry.length() > 0 && i < end) {
+            // Complete the held-back code with the head of this chunk
+            int carried = carry.length();
+            // Grow the carry geometrically so a long open gradient isn't re-lexed per character
+            int take = Math.min(end - i, Math.max(ColorCodeLexer.SEGMENTED_HEX_LENGTH, carried));
+            carry.append(chunk, i, i + take);
+
+            int decided = lexAvailable(carry, 0, carry.length(), false);
+            if (decided >= carried) {
+                // Decided past what was carried over: continue in the chunk itself
+                i += decided - carried;
+                carry.setLength(0);
+            } else {
+                // A later code in the carry is still open; it now holds the taken chars too
+                carry.delete(0, decided);
+                i += take;
+            }
+        }
+
+        if (carry.length() == 0) {
+            int decided = lexAvailable(chunk, i, end, false);
+            carry.append(chunk, decided, end);
+        }
+    }
+
+    // Flushes whatever is still held back; call once after the last chunk
+    public void finish() {
+        if (carry.length() > 0) {
+            lexAvailable(carry, 0, carry.length(), true);
+            carry.setLength(0);
+        }
+    }
+
+    /**
+     * Reads {@code reader} to the end through a single reusable buffer and finishes the stream.
+     */
+    public void readFully(Reader reader) throws IOException {
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        CharBuffer chunk = CharBuffer.wrap(buffer);
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            feed(chunk, 0, read);
+        }
+        finish();
+    }
+
+    // Lexes as far as the input allows and returns where it had to stop
+    private int lexAvailable(CharSequence text, int start, int end, boolean endOfInput) {
+        int i = start;
+        while (i < end) {
+            int next = ColorCodeLexer.lexNext(text, i, end, flags, endOfInput, tracker);
+            if (next == i) {
+                break;
+            }
+            i = next;
+        }
+        return i;
+    }
+}
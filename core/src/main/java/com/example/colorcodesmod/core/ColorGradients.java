@@ -0,0 +1,178 @@
+package com.example.colorcodesmod.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-glyph color arrays for gradient and rainbow tags.
+ * <p>
+ * Gradients are interpolated in OKLab so the middle of e.g. red to blue doesn't go muddy. Only
+ * the two endpoints are converted with floating point; every step in between is fixed-point
+ * integer math, with lookup tables for the sRGB transfer curve. Finished arrays are cached by
+ * {@code (start, end, length)} (and rainbows by length), so a gradient line seen again costs a
+ * map lookup. Cached arrays are shared and must not be modified.
+ */
+public final class ColorGradients {
+    private static final int MAX_CACHED_GRADIENTS = 1024;
+
+    // Fixed point: 1.0 == 1 << 16
+    private static final int ONE = 1 << 16;
+    private static final int LINEAR_TO_SRGB_BITS = 12;
+
+    // sRGB component (0-255) to linear light, and linear light (top 12 bits) back to sRGB
+    private static final int[] SRGB_TO_LINEAR = new int[256];
+    private static final int[] LINEAR_TO_SRGB = new int[1 << LINEAR_TO_SRGB_BITS];
+
+    // OKLab -> LMS' and LMS -> linear sRGB matrices in fixed point
+    private static final long[] LAB_TO_LMS = fixed(
+        1.0, 0.3963377774, 0.2158037573,
+        1.0, -0.1055613458, -0.0638541728,
+        1.0, -0.0894841775, -1.2914855480);
+    private static final long[] LMS_TO_RGB = fixed(
+        4.0767416621, -3.3077115913, 0.2309699292,
+        -1.2684380046, 2.6097574011, -0.3413193965,
+        -0.0041960863, -0.7034186147, 1.7076147010);
+
+    private static final ConcurrentHashMap<Long, int[]> GRADIENTS = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<int[]> RAINBOWS = new AtomicReferenceArray<>(ColorCodeLexer.MAX_GRADIENT_SPAN + 1);
+
+    static {
+        for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+            double c = i / 255.0;
+            double linear = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+            SRGB_TO_LINEAR[i] = (int) Math.round(linear * ONE);
+        }
+        for (int i = 0; i < LINEAR_TO_SRGB.length; i++) {
+            double linear = (i + 0.5) / LINEAR_TO_SRGB.length;
+            double c = linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+            LINEAR_TO_SRGB[i] = (int) Math.round(Math.min(1.0, c) * 255);
+        }
+    }
+
+    private ColorGradients() {
+    }
+
+    // Colors for length glyphs going from start to end (both 0xRRGGBB)
+    public static int[] gradient(int start, int end, int length) {
+        long key = ((long) start << 40) | ((long) end << 16) | length;
+        int[] cached = GRADIENTS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        int[] colors = interpolate(start, end, length);
+        if (GRADIENTS.size() >= MAX_CACHED_GRADIENTS) {
+            GRADIENTS.clear();
+        }
+        GRADIENTS.put(key, colors);
+        return colors;
+    }
+
+    // Colors for length glyphs sweeping once around the hue circle
+    public static int[] rainbow(int length) {
+        if (length >= RAINBOWS.length()) {
+            return hues(length);
+        }
+        int[] cached = RAINBOWS.get(length);
+        if (cached == null) {
+            cached = hues(length);
+            RAINBOWS.set(length, cached);
+        }
+        return cached;
+    }
+
+    private static int[] interpolate(int start, int end, int length) {
+        int[] colors = new int[length];
+        if (length == 0) {
+            return colors;
+        }
+        if (length == 1) {
+            colors[0] = start;
+            return colors;
+        }
+
+        int[] from = toOklab(start);
+        int[] to = toOklab(end);
+        int steps = length - 1;
+        for (int i = 0; i < length; i++) {
+            int l = from[0] + (int) ((long) (to[0] - from[0]) * i / steps);
+            int a = from[1] + (int) ((long) (to[1] - from[1]) * i / steps);
+            int b = from[2] + (int) ((long) (to[2] - from[2]) * i / steps);
+            colors[i] = fromOklab(l, a, b);
+        }
+        // Hit the endpoints exactly despite rounding
+        colors[0] = start;
+        colors[steps] = end;
+        return colors;
+    }
+
+    // 0xRRGGBB to fixed-point OKLab; only called for gradient endpoints
+    private static int[] toOklab(int rgb) {
+        double r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF] / (double) ONE;
+        double g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF] / (double) ONE;
+        double b = SRGB_TO_LINEAR[rgb & 0xFF] / (double) ONE;
+
+        double l = Math.cbrt(0.4122214708 * r + 0.5363004808 * g + 0.0514459929 * b);
+        double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+
+        return new int[] {
+            (int) Math.round((0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s) * ONE),
+            (int) Math.round((1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s) * ONE),
+            (int) Math.round((0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s) * ONE)
+        };
+    }
+
+    // Fixed-point OKLab back to 0xRRGGBB, integer math only
+    private static int fromOklab(int l, int a, int b) {
+        long lp = (LAB_TO_LMS[0] * l + LAB_TO_LMS[1] * a + LAB_TO_LMS[2] * b) >> 16;
+        long mp = (LAB_TO_LMS[3] * l + LAB_TO_LMS[4] * a + LAB_TO_LMS[5] * b) >> 16;
+        long sp = (LAB_TO_LMS[6] * l + LAB_TO_LMS[7] * a + LAB_TO_LMS[8] * b) >> 16;
+
+        long lc = (lp * lp >> 16) * lp >> 16;
+        long mc = (mp * mp >> 16) * mp >> 16;
+        long sc = (sp * sp >> 16) * sp >> 16;
+
+        int red = toSrgb((LMS_TO_RGB[0] * lc + LMS_TO_RGB[1] * mc + LMS_TO_RGB[2] * sc) >> 16);
+        int green = toSrgb((LMS_TO_RGB[3] * lc + LMS_TO_RGB[4] * mc + LMS_TO_RGB[5] * sc) >> 16);
+        int blue = toSrgb((LMS_TO_RGB[6] * lc + LMS_TO_RGB[7] * mc + LMS_TO_RGB[8] * sc) >> 16);
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    private static int toSrgb(long linear) {
+        if (linear <= 0) {
+            return 0;
+        }
+        if (linear >= ONE) {
+            return 255;
+        }
+        return LINEAR_TO_SRGB[(int) (linear >> (16 - LINEAR_TO_SRGB_BITS))];
+    }
+
+    // Fully saturated hues, integer HSV with the circle split into 6 * 256 steps
+    private static int[] hues(int length) {
+        int[] colors = new int[length];
+        for (int i = 0; i < length; i++) {
+            int hue = (int) ((long) i * 1536 / Math.max(1, length));
+            int rise = hue & 0xFF;
+            int fall = 255 - rise;
+            colors[i] = switch (hue >> 8) {
+                case 0 -> 0xFF0000 | (rise << 8);
+                case 1 -> (fall << 16) | 0x00FF00;
+                case 2 -> 0x00FF00 | rise;
+                case 3 -> (fall << 8) | 0x0000FF;
+                case 4 -> (rise << 16) | 0x0000FF;
+                default -> 0xFF0000 | fall;
+            };
+        }
+        return colors;
+    }
+
+    private static long[] fixed(double... values) {
+        long[] result = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Math.round(values[i] * ONE);
+        }
+        return result;
+    }
+}
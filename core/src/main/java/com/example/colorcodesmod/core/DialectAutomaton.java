@@ -0,0 +1,176 @@
+package com.example.colorcodesmod.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The prefixes of a set of dialects compiled into one trie. Instances are immutable and shared
+ * by every thread lexing with the same flags.
+ * <p>
+ * The lexer jumps from trigger to trigger (the first characters of the prefixes) and walks the
+ * trie from there. A trigger costs one trie walk no matter how many dialects are enabled; only
+ * dialects whose whole prefix matched are asked to finish the match, longest prefix first.
+ */
+final class DialectAutomaton {
+    private final Node root;
+    // First characters of the prefixes, in the trie's order
+    private final char[] triggers;
+    // True when TriggerScanner already stops at every trigger
+    private final boolean standardTriggers;
+    // Matched dialects are returned as an index into these
+    private final FormatDialect[] dialects;
+    private final int[] prefixes;
+
+    DialectAutomaton(List<FormatDialect> enabled) {
+        Builder builder = new Builder();
+        List<FormatDialect> dialects = new ArrayList<>();
+        List<Integer> prefixes = new ArrayList<>();
+        for (FormatDialect dialect : enabled) {
+            List<String> dialectPrefixes = dialect.prefixes();
+            for (int p = 0; p < dialectPrefixes.size(); p++) {
+                builder.descend(dialectPrefixes.get(p)).entries.add(dialects.size());
+                dialects.add(dialect);
+                prefixes.add(p);
+            }
+        }
+
+        this.root = builder.build();
+        this.triggers = root.labels;
+        this.dialects = dialects.toArray(new FormatDialect[0]);
+        this.prefixes = prefixes.stream().mapToInt(Integer::intValue).toArray();
+
+        boolean standard = true;
+        for (char trigger : triggers) {
+            standard &= TriggerScanner.isTrigger(trigger);
+        }
+        this.standardTriggers = standard;
+    }
+
+    // Index of the next character in [from, to) that can start a code, or to
+    int nextTrigger(CharSequence text, int from, int to) {
+        if (standardTriggers) {
+            return TriggerScanner.next(text, from, to);
+        }
+        for (int i = from; i < to; i++) {
+            if (root.child(text.charAt(i)) != null) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * The code at {@code offset}, packed as the matched entry in the high half and the code's
+     * end in the low half, or -1 when there is no code there.
+     */
+    long match(CharSequence text, int offset, int end) {
+        return match(root, text, offset, offset, end);
+    }
+
+    private long match(Node node, CharSequence text, int offset, int position, int end) {
+        if (position < end) {
+            Node child = node.child(text.charAt(position));
+            if (child != null) {
+                long match = match(child, text, offset, position + 1, end);
+                if (match >= 0) {
+                    return match;
+                }
+            }
+        }
+        for (int entry : node.entries) {
+            int codeEnd = dialects[entry].match(text, offset, end, prefixes[entry]);
+            if (codeEnd >= 0) {
+                return ((long) entry << 32) | codeEnd;
+            }
+        }
+        return -1;
+    }
+
+    // Reports a code found by match and returns where lexing goes on
+    int emit(long match, CharSequence text, int offset, int end, ColorCodeLexer.Sink sink) {
+        int entry = (int) (match >>> 32);
+        return dialects[entry].emit(text, offset, (int) match, end, prefixes[entry], sink);
+    }
+
+    // True when [offset, end) is cut short in a way that more input could turn into a code
+    boolean isPartial(CharSequence text, int offset, int end) {
+        return isPartial(root, text, offset, offset, end);
+    }
+
+    private boolean isPartial(Node node, CharSequence text, int offset, int position, int end) {
+        if (position < end) {
+            Node child = node.child(text.charAt(position));
+            if (child != null && isPartial(child, text, offset, position + 1, end)) {
+                return true;
+            }
+        } else if (node.labels.length > 0) {
+            // The input ends inside a longer prefix
+            return true;
+        }
+        for (int entry : node.entries) {
+            if (dialects[entry].isPartial(text, offset, end, prefixes[entry])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        // Sorted, so children are found by binary search
+        private final char[] labels;
+        private final Node[] children;
+        // Entries whose prefix ends here, in registration order
+        private final int[] entries;
+
+        private Node(char[] labels, Node[] children, int[] entries) {
+            this.labels = labels;
+            this.children = children;
+            this.entries = entries;
+        }
+
+        private Node child(char c) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = labels[middle];
+                if (label < c) {
+                    low = middle + 1;
+                } else if (label > c) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+    }
+
+    // Mutable trie used while compiling
+    private static final class Builder {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private final List<Integer> entries = new ArrayList<>();
+
+        private Builder descend(String prefix) {
+            Builder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), label -> new Builder());
+            }
+            return node;
+        }
+
+        private Node build() {
+            char[] labels = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                labels[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            return new Node(labels, nodes, entries.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.colorcodesmod.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The dialects the lexer knows, and their tries compiled per flag combination.
+ * <p>
+ * Built-in dialects are registered up front. Other mods can add theirs with
+ * {@link #register(FormatDialect)}; a dialect shares the toggle of an existing flag, or uses
+ * flag 0 to be always on. Tries are compiled on first use and dropped when a dialect is added.
+ */
+public final class DialectRegistry {
+    private static final List<FormatDialect> DIALECTS = new CopyOnWriteArrayList<>(BuiltinDialects.all());
+
+    // Compiled tries indexed by flags, filled lazily
+    private static volatile AtomicReferenceArray<DialectAutomaton> automata = new AtomicReferenceArray<>(ColorCodeLexer.ALL_FLAGS + 1);
+
+    private DialectRegistry() {
+    }
+
+    public static synchronized void register(FormatDialect dialect) {
+        int flag = dialect.flag();
+        if ((flag & ~ColorCodeLexer.ALL_FLAGS) != 0 || Integer.bitCount(flag) > 1) {
+            throw new IllegalArgumentException("Dialect flag must be 0 or one of the lexer flags: " + flag);
+        }
+        if (dialect.maxOpeningLength() > ColorCodeLexer.MAX_OPENING_LENGTH) {
+            // The incremental lexer only looks this far back for codes touched by an edit
+            throw new IllegalArgumentException("Dialect openings can't be longer than " + ColorCodeLexer.MAX_OPENING_LENGTH);
+        }
+        for (String prefix : dialect.prefixes()) {
+            if (prefix.isEmpty()) {
+                throw new IllegalArgumentException("Dialect prefixes can't be empty");
+            }
+        }
+
+        DIALECTS.add(dialect);
+        automata = new AtomicReferenceArray<>(ColorCodeLexer.ALL_FLAGS + 1);
+    }
+
+    public static List<FormatDialect> dialects() {
+        return List.copyOf(DIALECTS);
+    }
+
+    // The trie of every dialect enabled by flags
+    static DialectAutomaton automaton(int flags) {
+        AtomicReferenceArray<DialectAutomaton> compiled = automata;
+        int index = flags & ColorCodeLexer.ALL_FLAGS;
+        DialectAutomaton automaton = compiled.get(index);
+        if (automaton == null) {
+            // Two threads may both compile; they build the same trie, so either result will do
+            automaton = compile(index);
+            compiled.set(index, automaton);
+        }
+        return automaton;
+    }
+
+    private static DialectAutomaton compile(int flags) {
+        List<FormatDialect> enabled = new ArrayList<>();
+        for (FormatDialect dialect : DIALECTS) {
+            if (dialect.flag() == 0 || (dialect.flag() & flags) != 0) {
+                enabled.add(dialect);
+            }
+        }
+        return new DialectAutomaton(enabled);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.colorcodesmod.core;
+
+import java.util.List;
+
+/**
+ * One color code syntax, such as legacy {@code &c} codes or {@code <#RRGGBB>} tags.
+ * <p>
+ * A dialect doesn't scan for its codes itself. It declares the literal prefixes its codes start
+ * with, and {@link DialectRegistry} compiles the prefixes of all enabled dialects into one trie,
+ * so a line is still scanned once however many dialects are on. Only when the trie matches a
+ * prefix is the dialect asked to finish the match.
+ */
+public interface FormatDialect {
+    // Lexer flag that switches this dialect on, or 0 when it can't be switched off
+    int flag();
+
+    // Literal openings of the codes; when several dialects match, the longest prefix is tried first
+    List<String> prefixes();
+
+    // Upper bound on the length of the code before any text it styles
+    int maxOpeningLength();
+
+    /**
+     * End of the code at {@code offset}, or -1 when there is none. The automaton has already
+     * matched {@code prefixes().get(prefix)} there.
+     */
+    int match(CharSequence text, int offset, int end, int prefix);
+
+    /**
+     * Reports the code matched at {@code offset} to the sink and returns where lexing goes on.
+     * That is usually {@code codeEnd}, but a dialect that styles the text after it (a gradient)
+     * may consume up to {@code end}.
+     */
+    int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink);
+
+    /**
+     * True when {@code [offset, end)} starts with the prefix but is cut short, so more input
+     * could still turn it into a code.
+     */
+    boolean isPartial(CharSequence text, int offset, int end, int prefix);
+}
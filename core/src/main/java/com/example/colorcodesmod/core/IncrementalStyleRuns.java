@@ -0,0 +1,250 @@
+package com.example.colorcodesmod.core;
+
+import java.util.Arrays;
+
+/**
+ * Code positions and style state of an edited line, kept up to date incrementally.
+ * <p>
+ * Every code in the line is recorded as a token: its start, its end and the {@link StyleState}
+ * in effect from its start on. On an edit only the damaged region is re-lexed: lexing restarts
+ * at a clean point just far enough before the edit that no code reaching into it can be
+ * missed, and stops at the first code after the edit whose resulting state matches the old
+ * state at the same (shifted) place. Everything after that point is reused as is.
+ * <p>
+ * Tokens that belong to a gradient also remember the source range of the whole gradient, since
+ * its colors depend on everything between the tags: an edit anywhere in it re-lexes all of it.
+ */
+public class IncrementalStyleRuns {
+    // The longest code can start this many characters before an edited character
+    private static final int LOOKBEHIND = ColorCodeLexer.MAX_OPENING_LENGTH - 1;
+
+    private String text = "";
+    private int flags = ColorCodeLexer.ALL_FLAGS;
+
+    private int count;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] states = new int[16];
+    // Range of the gradient a token belongs to; the token's own range otherwise
+    private int[] groupStarts = new int[16];
+    private int[] groupEnds = new int[16];
+
+    // Double buffer for the spliced token list, swapped with the live arrays after an update
+    private int scratchCount;
+    private int[] scratchStarts = new int[16];
+    private int[] scratchEnds = new int[16];
+    private int[] scratchStates = new int[16];
+    private int[] scratchGroupStarts = new int[16];
+    private int[] scratchGroupEnds = new int[16];
+
+    private final Recorder recorder = new Recorder();
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Brings the runs up to date with {@code newText}. Returns false when nothing changed.
+     */
+    public boolean update(String newText, int newFlags) {
+        if (newFlags != flags) {
+            // Different syntaxes enabled: nothing can be reused
+            flags = newFlags;
+            text = "";
+            count = 0;
+        } else if (newText.equals(text)) {
+            return false;
+        }
+
+        String oldText = text;
+        int oldLength = oldText.length();
+        int newLength = newText.length();
+        int delta = newLength - oldLength;
+
+        int prefix = 0;
+        int maxPrefix = Math.min(oldLength, newLength);
+        while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix
+                && oldText.charAt(oldLength - 1 - suffix) == newText.charAt(newLength - 1 - suffix)) {
+            suffix++;
+        }
+        int damageEnd = newLength - suffix;
+
+        // Keep the tokens that lie entirely before the restart point
+        int restart = Math.max(0, prefix - LOOKBEHIND);
+        int kept = lowerBound(starts, count, restart);
+        if (kept > 0 && groupEnds[kept - 1] > restart) {
+            restart = groupStarts[kept - 1];
+            kept = lowerBound(starts, count, restart);
+        }
+
+        ensureScratchCapacity(count + 8);
+        System.arraycopy(starts, 0, scratchStarts, 0, kept);
+        System.arraycopy(ends, 0, scratchEnds, 0, kept);
+        System.arraycopy(states, 0, scratchStates, 0, kept);
+        System.arraycopy(groupStarts, 0, scratchGroupStarts, 0, kept);
+        System.arraycopy(groupEnds, 0, scratchGroupEnds, 0, kept);
+        scratchCount = kept;
+
+        recorder.state = kept > 0 ? states[kept - 1] : StyleState.DEFAULT;
+        recorder.groupEnd = 0;
+        int i = restart;
+        int reuseFrom = -1;
+        while (i < newLength) {
+            int before = scratchCount;
+            i = ColorCodeLexer.lexNext(newText, i, newLength, flags, recorder);
+
+            int last = scratchCount - 1;
+            if (scratchCount > before && scratchGroupStarts[last] >= damageEnd) {
+                // Past the edit: stop as soon as we land on an old token with the same state
+                int oldIndex = Arrays.binarySearch(starts, 0, count, scratchStarts[last] - delta);
+                if (oldIndex >= 0 && states[oldIndex] == scratchStates[last]
+                        && groupStarts[oldIndex] == scratchGroupStarts[last] - delta) {
+                    reuseFrom = oldIndex + 1;
+                    break;
+                }
+            }
+        }
+
+        if (reuseFrom >= 0) {
+            int tail = count - reuseFrom;
+            ensureScratchCapacity(scratchCount + tail);
+            for (int k = 0; k < tail; k++) {
+                scratchStarts[scratchCount + k] = starts[reuseFrom + k] + delta;
+                scratchEnds[scratchCount + k] = ends[reuseFrom + k] + delta;
+                scratchStates[scratchCount + k] = states[reuseFrom + k];
+                scratchGroupStarts[scratchCount + k] = groupStarts[reuseFrom + k] + delta;
+                scratchGroupEnds[scratchCount + k] = groupEnds[reuseFrom + k] + delta;
+            }
+            scratchCount += tail;
+        }
+
+        swapBuffers();
+        text = newText;
+        return true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Index of the last token starting at or before position, or -1
+    public int tokenAt(int position) {
+        return lowerBound(starts, count, position + 1) - 1;
+    }
+
+    public int tokenStart(int token) {
+        return starts[token];
+    }
+
+    // Style state from the start of token on; -1 means the start of the line
+    public int stateAfter(int token) {
+        return token >= 0 ? states[token] : StyleState.DEFAULT;
+    }
+
+    // First index whose value is >= key
+    private static int lowerBound(int[] values, int length, int key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureScratchCapacity(int capacity) {
+        if (scratchStarts.length < capacity) {
+            int size = Math.max(capacity, scratchStarts.length * 2);
+            scratchStarts = Arrays.copyOf(scratchStarts, size);
+            scratchEnds = Arrays.copyOf(scratchEnds, size);
+            scratchStates = Arrays.copyOf(scratchStates, size);
+            scratchGroupStarts = Arrays.copyOf(scratchGroupStarts, size);
+            scratchGroupEnds = Arrays.copyOf(scratchGroupEnds, size);
+        }
+    }
+
+    private void swapBuffers() {
+        int[] swap = starts;
+        starts = scratchStarts;
+        scratchStarts = swap;
+        swap = ends;
+        ends = scratchEnds;
+        scratchEnds = swap;
+        swap = states;
+        states = scratchStates;
+        scratchStates = swap;
+        swap = groupStarts;
+        groupStarts = scratchGroupStarts;
+        scratchGroupStarts = swap;
+        swap = groupEnds;
+        groupEnds = scratchGroupEnds;
+        scratchGroupEnds = swap;
+        count = scratchCount;
+    }
+
+    // Appends every lexed code to the scratch token list
+    private class Recorder implements ColorCodeLexer.Sink {
+        private int state;
+        private int tokenStart;
+        private int tokenEnd;
+        private int groupStart;
+        private int groupEnd;
+
+        @Override
+        public void text(CharSequence source, int start, int end) {
+        }
+
+        @Override
+        public void group(int start, int end) {
+            groupStart = start;
+            groupEnd = end;
+        }
+
+        @Override
+        public void token(int start, int end) {
+            tokenStart = start;
+            tokenEnd = end;
+            if (start >= groupEnd) {
+                // Not part of a gradient: the token is its own group
+                groupStart = start;
+                groupEnd = end;
+            }
+        }
+
+        @Override
+        public void color(int rgb) {
+            // Shown the way it will be sent, as the nearest legacy color when hex colors are stripped
+            record(StyleTracker.applyColor(state, rgb, (flags & ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY) != 0));
+        }
+
+        @Override
+        public void code(char code) {
+            record(StyleState.applyCode(state, code));
+        }
+
+        @Override
+        public void clear(int formatting, boolean color) {
+            record(StyleState.clear(state, formatting, color));
+        }
+
+        private void record(int newState) {
+            state = newState;
+            ensureScratchCapacity(scratchCount + 1);
+            scratchStarts[scratchCount] = tokenStart;
+            scratchEnds[scratchCount] = tokenEnd;
+            scratchStates[scratchCount] = newState;
+            scratchGroupStarts[scratchCount] = groupStart;
+            scratchGroupEnds[scratchCount] = groupEnd;
+            scratchCount++;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Maps any 0xRRGGBB to the legacy color that looks closest, for servers that only accept the 16
+ * legacy colors.
+ * <p>
+ * Answers come from a 4096-entry table indexed by the top four bits of each channel, built once
+ * when the class loads. Each entry is the legacy color nearest in CIELAB to the center of its
+ * cell, so the mapping follows perceived rather than raw RGB distance, and a lookup is a few
+ * bit operations and an array read.
+ */
+public final class LegacyPalette {
+    private static final int CELL_BITS = 4;
+    private static final byte[] NEAREST = new byte[1 << (CELL_BITS * 3)];
+
+    static {
+        double[][] palette = new double[16][];
+        for (int color = 0; color < 16; color++) {
+            palette[color] = lab(StyleState.legacyRgb(color));
+        }
+
+        int half = 1 << (7 - CELL_BITS);
+        for (int cell = 0; cell < NEAREST.length; cell++) {
+            int r = ((cell >>> 8) << 4) + half;
+            int g = (((cell >>> 4) & 0xF) << 4) + half;
+            int b = ((cell & 0xF) << 4) + half;
+            NEAREST[cell] = (byte) nearestLab(lab((r << 16) | (g << 8) | b), palette);
+        }
+
+        // A legacy color always maps to itself, even when it sits on the edge of its cell
+        for (int color = 0; color < 16; color++) {
+            NEAREST[cell(StyleState.legacyRgb(color))] = (byte) color;
+        }
+    }
+
+    private LegacyPalette() {
+    }
+
+    // Legacy color index (0-15) that looks closest to rgb
+    public static int nearest(int rgb) {
+        return NEAREST[cell(rgb)];
+    }
+
+    private static int cell(int rgb) {
+        return ((rgb >>> 12) & 0xF00) | ((rgb >>> 8) & 0xF0) | ((rgb >>> 4) & 0xF);
+    }
+
+    private static int nearestLab(double[] lab, double[][] palette) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int color = 0; color < palette.length; color++) {
+            double dl = lab[0] - palette[color][0];
+            double da = lab[1] - palette[color][1];
+            double db = lab[2] - palette[color][2];
+            double distance = dl * dl + da * da + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = color;
+            }
+        }
+        return best;
+    }
+
+    // sRGB to CIELAB under the D65 white point
+    private static double[] lab(int rgb) {
+        double r = linear((rgb >>> 16) & 0xFF);
+        double g = linear((rgb >>> 8) & 0xFF);
+        double b = linear(rgb & 0xFF);
+
+        double x = labCurve((0.4124 * r + 0.3576 * g + 0.1805 * b) / 0.95047);
+        double y = labCurve(0.2126 * r + 0.7152 * g + 0.0722 * b);
+        double z = labCurve((0.0193 * r + 0.1192 * g + 0.9505 * b) / 1.08883);
+        return new double[] {116 * y - 16, 500 * (x - y), 200 * (y - z)};
+    }
+
+    private static double linear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labCurve(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+}
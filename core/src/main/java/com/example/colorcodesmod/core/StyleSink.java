@@ -0,0 +1,13 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Receives the styled text of a line as runs, in order. This is where parsing output leaves the
+ * core: the mod builds Minecraft text from it, {@link CodeEncoder} writes codes back out, and
+ * tools outside the game can do whatever they need with it.
+ * <p>
+ * Ranges point into the parsed input, so a sink that keeps text must copy it before returning.
+ */
+public interface StyleSink {
+    // Text in [start, end) of source, all of it shown in the packed StyleState style
+    void run(int style, CharSequence source, int start, int end);
+}
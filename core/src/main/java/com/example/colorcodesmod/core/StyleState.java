@@ -0,0 +1,97 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * The style in effect at a point of a line, packed into a single int.
+ * <p>
+ * Bits 0-4 hold the formatting flags, bits 5-28 hold either a legacy color index (0-15, or
+ * {@link #NO_COLOR}) or a 0xRRGGBB color, and bit 29 tells the two apart. Equal styles always
+ * pack to the same int, so states can be compared, stored in arrays and used as table keys.
+ */
+public final class StyleState {
+    public static final int BOLD = 1;
+    public static final int ITALIC = 1 << 1;
+    public static final int UNDERLINE = 1 << 2;
+    public static final int STRIKETHROUGH = 1 << 3;
+    public static final int OBFUSCATED = 1 << 4;
+    public static final int FORMATTING_MASK = (1 << 5) - 1;
+    public static final int FORMATTING_COMBINATIONS = 1 << 5;
+
+    // Legacy color index used for "no color"
+    public static final int NO_COLOR = 16;
+
+    private static final int COLOR_SHIFT = 5;
+    private static final int RGB_FLAG = 1 << 29;
+
+    // Plain, unformatted text
+    public static final int DEFAULT = NO_COLOR << COLOR_SHIFT;
+
+    // 0xRRGGBB of the legacy colors 0-f, as rendered by the vanilla client
+    private static final int[] LEGACY_RGB = {
+        0x000000, 0x0000AA, 0x00AA00, 0x00AAAA, 0xAA0000, 0xAA00AA, 0xFFAA00, 0xAAAAAA,
+        0x555555, 0x5555FF, 0x55FF55, 0x55FFFF, 0xFF5555, 0xFF55FF, 0xFFFF55, 0xFFFFFF
+    };
+
+    private StyleState() {
+    }
+
+    public static int ofLegacy(int color, int formatting) {
+        return (color << COLOR_SHIFT) | formatting;
+    }
+
+    public static int ofRgb(int rgb, int formatting) {
+        return RGB_FLAG | (rgb << COLOR_SHIFT) | formatting;
+    }
+
+    public static boolean isRgb(int state) {
+        return (state & RGB_FLAG) != 0;
+    }
+
+    // Legacy color index or 0xRRGGBB, depending on isRgb
+    public static int color(int state) {
+        return (state & ~RGB_FLAG) >>> COLOR_SHIFT;
+    }
+
+    public static int formatting(int state) {
+        return state & FORMATTING_MASK;
+    }
+
+    // Hex colors keep the active formattings
+    public static int applyColor(int state, int rgb) {
+        return ofRgb(rgb, formatting(state));
+    }
+
+    // Applies a lower-cased legacy code as reported by ColorCodeLexer
+    public static int applyCode(int state, char code) {
+        int legacyColor = ColorCodeLexer.hexValue(code);
+        if (legacyColor >= 0) {
+            // Colors clear all active formattings
+            return ofLegacy(legacyColor, 0);
+        }
+        if (code == 'r') {
+            return DEFAULT;
+        }
+        return state | formattingBit(code);
+    }
+
+    // Turns off the given formatting bits and, when color is true, drops the color
+    public static int clear(int state, int formatting, boolean color) {
+        int kept = state & ~(formatting & FORMATTING_MASK);
+        return color ? ofLegacy(NO_COLOR, formatting(kept)) : kept;
+    }
+
+    public static int legacyRgb(int color) {
+        return LEGACY_RGB[color];
+    }
+
+    // Formatting bit for a legacy modifier code (k-o), or 0
+    public static int formattingBit(char code) {
+        return switch (code) {
+            case 'k' -> OBFUSCATED;
+            case 'l' -> BOLD;
+            case 'm' -> STRIKETHROUGH;
+            case 'n' -> UNDERLINE;
+            case 'o' -> ITALIC;
+            default -> 0;
+        };
+    }
+}
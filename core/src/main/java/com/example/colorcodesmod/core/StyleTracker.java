@@ -0,0 +1,85 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Bridges lexer tokens to a {@link StyleSink}: follows the {@link StyleState} through the codes
+ * of a line and hands every piece of text on as a run in the style it ends up in.
+ * <p>
+ * With {@code legacyColorsOnly} set, hex colors are replaced by the nearest legacy color, as on
+ * a server that strips hex colors.
+ * <p>
+ * An instance is not thread-safe, but it can be {@link #reset(boolean) reset} and reused for
+ * the next line.
+ */
+public class StyleTracker implements ColorCodeLexer.Sink {
+    private final StyleSink sink;
+    private boolean legacyColorsOnly;
+    private int state = StyleState.DEFAULT;
+    private int codeCount;
+
+    public StyleTracker(StyleSink sink) {
+        this(sink, false);
+    }
+
+    public StyleTracker(StyleSink sink, boolean legacyColorsOnly) {
+        this.sink = sink;
+        this.legacyColorsOnly = legacyColorsOnly;
+    }
+
+    @Override
+    public void text(CharSequence source, int start, int end) {
+        sink.run(state, source, start, end);
+    }
+
+    @Override
+    public void color(int rgb) {
+        codeCount++;
+        applyColor(rgb);
+    }
+
+    @Override
+    public void interpolatedColor(int rgb) {
+        applyColor(rgb);
+    }
+
+    private void applyColor(int rgb) {
+        state = applyColor(state, rgb, legacyColorsOnly);
+    }
+
+    // The state after a hex color, replaced by the nearest legacy color when only those are allowed
+    static int applyColor(int state, int rgb, boolean legacyColorsOnly) {
+        if (legacyColorsOnly) {
+            // Like the hex color it replaces, the legacy color keeps the active formattings
+            return StyleState.ofLegacy(LegacyPalette.nearest(rgb), StyleState.formatting(state));
+        }
+        return StyleState.applyColor(state, rgb);
+    }
+
+    @Override
+    public void code(char code) {
+        codeCount++;
+        state = StyleState.applyCode(state, code);
+    }
+
+    @Override
+    public void clear(int formatting, boolean color) {
+        codeCount++;
+        state = StyleState.clear(state, formatting, color);
+    }
+
+    // Style the next run will have
+    public int getState() {
+        return state;
+    }
+
+    // Codes reported by the lexer so far
+    public int getCodeCount() {
+        return codeCount;
+    }
+
+    // Forgets the previous line, so the tracker can start on the next one
+    public void reset(boolean legacyColorsOnly) {
+        this.legacyColorsOnly = legacyColorsOnly;
+        state = StyleState.DEFAULT;
+        codeCount = 0;
+    }
+}
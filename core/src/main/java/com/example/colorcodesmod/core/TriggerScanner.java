@@ -0,0 +1,53 @@
+package com.example.colorcodesmod.core;
+
+/**
+ * Finds the next character that can start a code ({@code &}, {@code §}, {@code #} or
+ * {@code <}), so the lexer can jump over code-free text instead of branching on every character.
+ * <p>
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} the search compares a full
+ * vector of characters at a time. Otherwise Strings go through the JDK's own (intrinsified)
+ * {@code String.indexOf} and other sequences through a plain loop.
+ */
+public final class TriggerScanner {
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private TriggerScanner() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    // True for the characters next() stops at
+    public static boolean isTrigger(char c) {
+        return c == '&' || c == '§' || c == '#' || c == '<';
+    }
+
+    // Index of the next '&', '§', '#' or '<' in [from, to), or to when there is none
+    public static int next(CharSequence text, int from, int to) {
+        if (VECTORIZED && to - from >= VectorTriggerScanner.MIN_LENGTH) {
+            return VectorTriggerScanner.next(text, from, to);
+        }
+        return scalarNext(text, from, to);
+    }
+
+    public static int scalarNext(CharSequence text, int from, int to) {
+        if (text instanceof String string) {
+            int ampersand = string.indexOf('&', from, to);
+            int hashEnd = ampersand >= 0 ? ampersand : to;
+            int hash = string.indexOf('#', from, hashEnd);
+            int tagEnd = hash >= 0 ? hash : hashEnd;
+            int tag = string.indexOf('<', from, tagEnd);
+            int sectionEnd = tag >= 0 ? tag : tagEnd;
+            int section = string.indexOf('§', from, sectionEnd);
+            return section >= 0 ? section : sectionEnd;
+        }
+
+        for (int i = from; i < to; i++) {
+            if (isTrigger(text.charAt(i))) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.colorcodesmod.core;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.CharBuffer;
+
+/**
+ * Vector API implementation behind {@link TriggerScanner}. Only loaded when the
+ * {@code jdk.incubator.vector} module is present, so nothing else may reference it directly.
+ */
+final class VectorTriggerScanner {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    static final int MIN_LENGTH = SPECIES.length() * 2;
+
+    // Strings don't expose their chars, so they are scanned through a per-thread block copy
+    private static final int BLOCK = 512;
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[BLOCK]);
+    // Characters looked at in place before a String is copied at all
+    private static final int PROBE_LENGTH = 16;
+    // Size of the first copied block; blocks double from there up to BLOCK
+    private static final int FIRST_BLOCK = 64;
+
+    private VectorTriggerScanner() {
+    }
+
+    static int next(CharSequence text, int from, int to) {
+        if (text instanceof String string) {
+            return next(string, from, to);
+        }
+
+        if (text instanceof CharBuffer buffer && buffer.hasArray()) {
+            int base = buffer.arrayOffset() + buffer.position();
+            return scan(buffer.array(), base + from, base + to) - base;
+        }
+
+        return TriggerScanner.scalarNext(text, from, to);
+    }
+
+    /**
+     * Triggers are often close together, so the first few characters are checked in place and
+     * only a longer code-free span is copied. Blocks start small and double, which keeps the
+     * characters copied proportional to the distance to the trigger, however dense the codes.
+     */
+    private static int next(String string, int from, int to) {
+        int probeEnd = Math.min(to, from + PROBE_LENGTH);
+        for (int i = from; i < probeEnd; i++) {
+            if (TriggerScanner.isTrigger(string.charAt(i))) {
+                return i;
+            }
+        }
+
+        char[] block = SCRATCH.get();
+        int length = FIRST_BLOCK;
+        for (int offset = probeEnd; offset < to; offset += length, length = Math.min(BLOCK, length * 2)) {
+            int copied = Math.min(length, to - offset);
+            string.getChars(offset, offset + copied, block, 0);
+            int hit = scan(block, 0, copied);
+            if (hit < copied) {
+                return offset + hit;
+            }
+        }
+        return to;
+    }
+
+    // Index of the next '&', '§', '#' or '<' in chars[from, to), or to
+    private static int scan(char[] chars, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ShortVector vector = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> triggers = vector.eq((short) '&').or(vector.eq((short) '#')).or(vector.eq((short) '<'))
+                .or(vector.eq((short) '§'));
+            if (triggers.anyTrue()) {
+                return i + triggers.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (TriggerScanner.isTrigger(chars[i])) {
+                return i;
+            }
+        }
+        return to;
+    }
+}
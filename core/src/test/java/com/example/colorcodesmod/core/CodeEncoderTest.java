@@ -0,0 +1,111 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CodeEncoderTest {
+    @Test
+    void encodedRunsLexBackToTheSameRuns() {
+        Random random = new Random(7);
+        for (CodeEncoder.Format format : CodeEncoder.Format.values()) {
+            for (int round = 0; round < 5_000; round++) {
+                RecordedRuns expected = new RecordedRuns();
+                CodeEncoder encoder = new CodeEncoder(format);
+                int runs = 1 + random.nextInt(8);
+                for (int k = 0; k < runs; k++) {
+                    int style = randomStyle(random, format);
+                    String text = "t" + k;
+                    expected.run(style, text, 0, text.length());
+                    encoder.run(style, text, 0, text.length());
+                }
+
+                String encoded = encoder.toString();
+                assertEquals(rendered(expected), rendered(lex(encoded)), () -> format + ": " + encoded);
+            }
+        }
+    }
+
+    @Test
+    void textThatReadsAsCodesStaysText() {
+        Random random = new Random(11);
+        for (CodeEncoder.Format format : CodeEncoder.Format.values()) {
+            for (int round = 0; round < 5_000; round++) {
+                RecordedRuns expected = new RecordedRuns();
+                CodeEncoder encoder = new CodeEncoder(format);
+                int runs = 1 + random.nextInt(4);
+                for (int k = 0; k < runs; k++) {
+                    int style = randomStyle(random, format);
+                    String text = TestLines.line(random, 1 + random.nextInt(12));
+                    expected.run(style, text, 0, text.length());
+                    encoder.run(style, text, 0, text.length());
+                }
+
+                String encoded = encoder.toString();
+                assertEquals(rendered(expected), rendered(lex(encoded)), () -> format + ": " + encoded);
+            }
+        }
+    }
+
+    @Test
+    void breaksLiteralCodesWithoutChangingTheStyle() {
+        CodeEncoder encoder = new CodeEncoder(CodeEncoder.Format.HEX);
+        encoder.run(StyleState.DEFAULT, "a&cb", 0, 4);
+        assertEquals("a&&rcb", encoder.toString());
+
+        // A literal & right before a hex color would turn it into &#RRGGBB
+        encoder = new CodeEncoder(CodeEncoder.Format.HEX);
+        encoder.run(StyleState.ofLegacy(12, StyleState.BOLD), "x&", 0, 2);
+        encoder.run(StyleState.ofRgb(0x123456, StyleState.BOLD), "y", 0, 1);
+        assertEquals("&c&lx&&l#123456y", encoder.toString());
+    }
+
+    @Test
+    void prefersTheShortestCodes() {
+        CodeEncoder encoder = new CodeEncoder(CodeEncoder.Format.AMPERSAND_HEX);
+        // A hex color that is a legacy color, formattings added on top, and a hex color
+        encoder.run(StyleState.ofRgb(0xFF5555, StyleState.BOLD), "a", 0, 1);
+        encoder.run(StyleState.ofRgb(0xFF5555, StyleState.BOLD | StyleState.ITALIC), "b", 0, 1);
+        encoder.run(StyleState.ofRgb(0x123456, StyleState.BOLD | StyleState.ITALIC), "c", 0, 1);
+        encoder.run(StyleState.DEFAULT, "d", 0, 1);
+        assertEquals("&c&la&ob&#123456c&rd", encoder.toString());
+    }
+
+    @Test
+    void transcodesBetweenDialects() {
+        assertEquals("&cx&ly", CodeEncoder.transcode("<red>x<bold>y", ColorCodeLexer.ALL_FLAGS, CodeEncoder.Format.HEX));
+        assertEquals("&4x", CodeEncoder.transcode("#ff0000x", ColorCodeLexer.ALL_FLAGS, CodeEncoder.Format.LEGACY));
+    }
+
+    private static int randomStyle(Random random, CodeEncoder.Format format) {
+        int formatting = random.nextInt(StyleState.FORMATTING_COMBINATIONS);
+        return switch (format == CodeEncoder.Format.LEGACY ? 0 : random.nextInt(3)) {
+            case 0 -> StyleState.ofLegacy(random.nextInt(StyleState.NO_COLOR + 1), formatting);
+            case 1 -> StyleState.ofRgb(StyleState.legacyRgb(random.nextInt(16)), formatting);
+            default -> StyleState.ofRgb(random.nextInt(1 << 24), formatting);
+        };
+    }
+
+    private static RecordedRuns lex(String encoded) {
+        RecordedRuns runs = new RecordedRuns();
+        ColorCodeLexer.lex(encoded, 0, encoded.length(), ColorCodeLexer.ALL_FLAGS, new StyleTracker(runs));
+        return runs;
+    }
+
+    // One entry per character, with the style as rendered: a legacy color and its RGB look the same
+    private static String rendered(RecordedRuns runs) {
+        StringBuilder rendered = new StringBuilder();
+        for (String run : runs.list()) {
+            int separator = run.indexOf(':');
+            int style = Integer.parseUnsignedInt(run.substring(0, separator), 16);
+            int color = StyleState.color(style);
+            int rgb = StyleState.isRgb(style) ? color : color == StyleState.NO_COLOR ? -1 : StyleState.legacyRgb(color);
+            for (char c : run.substring(separator + 1).toCharArray()) {
+                rendered.append(rgb).append('/').append(StyleState.formatting(style)).append(c).append(' ');
+            }
+        }
+        return rendered.toString();
+    }
+}
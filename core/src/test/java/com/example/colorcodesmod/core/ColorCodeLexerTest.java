@@ -0,0 +1,182 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.colorcodesmod.core.ColorCodeLexer.ALL_FLAGS;
+import static com.example.colorcodesmod.core.RecordedRuns.run;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColorCodeLexerTest {
+    private static final int RED = 12;
+
+    @Test
+    void legacyCodes() {
+        assertEquals(List.of(run(StyleState.ofLegacy(RED, 0), "red "), run(StyleState.ofLegacy(RED, StyleState.BOLD), "bold")),
+            RecordedRuns.lex("&cred &lbold", ALL_FLAGS));
+        // A legacy color clears the formattings, a reset clears everything
+        assertEquals(List.of(run(StyleState.ofLegacy(RED, 0), "x"), run(StyleState.DEFAULT, "y")),
+            RecordedRuns.lex("&l&Cx&ry", ALL_FLAGS));
+    }
+
+    @Test
+    void sectionSignOnlyWithItsFlag() {
+        assertEquals(List.of(run(StyleState.ofLegacy(RED, 0), "S")), RecordedRuns.lex("§cS", ALL_FLAGS));
+        assertEquals(List.of(run(StyleState.DEFAULT, "§cS")),
+            RecordedRuns.lex("§cS", ALL_FLAGS & ~ColorCodeLexer.FLAG_SECTION_SIGN));
+    }
+
+    @Test
+    void hexColorsKeepTheFormattings() {
+        int green = StyleState.ofRgb(0x00ff00, StyleState.BOLD);
+        assertEquals(List.of(run(green, "x")), RecordedRuns.lex("&l#00ff00x", ALL_FLAGS));
+        assertEquals(List.of(run(green, "x")), RecordedRuns.lex("&l&#00FF00x", ALL_FLAGS));
+        assertEquals(List.of(run(green, "x")), RecordedRuns.lex("&l<#00ff00>x", ALL_FLAGS));
+        assertEquals(List.of(run(green, "x")), RecordedRuns.lex("&l&x&0&0&f&f&0&0x", ALL_FLAGS));
+        assertEquals(List.of(run(green, "x")), RecordedRuns.lex("&l&X&0&0&F&F&0&0x", ALL_FLAGS));
+    }
+
+    @Test
+    void disabledDialectsAreText() {
+        assertEquals(List.of(run(StyleState.DEFAULT, "#00ff00x")),
+            RecordedRuns.lex("#00ff00x", ALL_FLAGS & ~ColorCodeLexer.FLAG_HEX));
+        assertEquals(List.of(run(StyleState.DEFAULT, "<red>x")),
+            RecordedRuns.lex("<red>x", ALL_FLAGS & ~ColorCodeLexer.FLAG_NAMED_TAGS));
+        assertEquals(List.of(run(StyleState.DEFAULT, "#zzzzzz &z <nope> <#12345>")),
+            RecordedRuns.lex("#zzzzzz &z <nope> <#12345>", ALL_FLAGS));
+    }
+
+    @Test
+    void namedTagsOpenAndClose() {
+        int red = StyleState.ofRgb(StyleState.legacyRgb(RED), 0);
+        assertEquals(List.of(
+                run(red, "y"),
+                run(red | StyleState.BOLD, "z"),
+                run(red, "w"),
+                run(StyleState.DEFAULT, "v")),
+            RecordedRuns.lex("<red>y<bold>z</bold>w</red>v", ALL_FLAGS));
+    }
+
+    @Test
+    void gradientColorsEveryGlyphBetweenItsEndpoints() {
+        List<String> runs = RecordedRuns.lex("<#ff0000:#0000ff>abcde</>f", ALL_FLAGS);
+        assertEquals(6, runs.size());
+        assertEquals(run(StyleState.ofRgb(0xff0000, 0), "a"), runs.get(0));
+        assertEquals(run(StyleState.ofRgb(0x0000ff, 0), "e"), runs.get(4));
+        // The closing tag resets the style
+        assertEquals(run(StyleState.DEFAULT, "f"), runs.get(5));
+    }
+
+    @Test
+    void gradientCountsOnlyItsTags() {
+        StyleTracker tracker = new StyleTracker((style, source, start, end) -> { });
+        ColorCodeLexer.lex("<#ff0000:#0000ff>abcdefgh</>", tracker);
+        assertEquals(2, tracker.getCodeCount());
+
+        tracker.reset(false);
+        ColorCodeLexer.lex("<rainbow>ab&lcd</rainbow>", tracker);
+        assertEquals(3, tracker.getCodeCount());
+    }
+
+    @Test
+    void gradientOnlyTakesAmpersandCodes() {
+        List<String> runs = RecordedRuns.lex("<#ff0000:#0000ff>a&lb§lc</>", ALL_FLAGS);
+        assertEquals(5, runs.size());
+        assertEquals(StyleState.BOLD, StyleState.formatting(Integer.parseInt(runs.get(1).split(":")[0], 16)));
+        // § and the l after it are colored glyphs like any other text
+        assertEquals("§", runs.get(2).split(":", 2)[1]);
+    }
+
+    @Test
+    void rainbowGivesNeighboursDifferentColors() {
+        List<String> runs = RecordedRuns.lex("<rainbow>abc</rainbow>", ALL_FLAGS);
+        assertEquals(3, runs.size());
+        assertNotEquals(runs.get(0).split(":")[0], runs.get(1).split(":")[0]);
+        assertNotEquals(runs.get(1).split(":")[0], runs.get(2).split(":")[0]);
+    }
+
+    @Test
+    void findsTheFirstCode() {
+        assertEquals(-1, ColorCodeLexer.indexOfCode("plain & text #12 <b", 0, 19, ALL_FLAGS));
+        assertEquals(2, ColorCodeLexer.indexOfCode("a &cb", 0, 5, ALL_FLAGS));
+        assertEquals(-1, ColorCodeLexer.indexOfCode("a &cb", 0, 3, ALL_FLAGS));
+    }
+
+    @Test
+    void registeredDialectsAreLexed() {
+        DialectRegistry.register(new FormatDialect() {
+            @Override
+            public int flag() {
+                return 0;
+            }
+
+            @Override
+            public List<String> prefixes() {
+                return List.of("{shout}");
+            }
+
+            @Override
+            public int maxOpeningLength() {
+                return 7;
+            }
+
+            @Override
+            public int match(CharSequence text, int offset, int end, int prefix) {
+                return offset + 7;
+            }
+
+            @Override
+            public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+                sink.token(offset, codeEnd);
+                sink.code('l');
+                return codeEnd;
+            }
+
+            @Override
+            public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+                return false;
+            }
+        });
+
+        assertEquals(List.of(run(StyleState.DEFAULT, "a "), run(StyleState.DEFAULT | StyleState.BOLD, "b")),
+            RecordedRuns.lex("a {shout}b", ALL_FLAGS));
+    }
+
+    @Test
+    void rejectsDialectsTheLexerCantHandle() {
+        FormatDialect twoFlags = new BrokenDialect(ColorCodeLexer.FLAG_HEX | ColorCodeLexer.FLAG_GRADIENT, "<!");
+        FormatDialect emptyPrefix = new BrokenDialect(0, "");
+        assertThrows(IllegalArgumentException.class, () -> DialectRegistry.register(twoFlags));
+        assertThrows(IllegalArgumentException.class, () -> DialectRegistry.register(emptyPrefix));
+    }
+
+    private record BrokenDialect(int flag, String prefix) implements FormatDialect {
+        @Override
+        public List<String> prefixes() {
+            return List.of(prefix);
+        }
+
+        @Override
+        public int maxOpeningLength() {
+            return 2;
+        }
+
+        @Override
+        public int match(CharSequence text, int offset, int end, int prefix) {
+            return -1;
+        }
+
+        @Override
+        public int emit(CharSequence text, int offset, int codeEnd, int end, int prefix, ColorCodeLexer.Sink sink) {
+            return codeEnd;
+        }
+
+        @Override
+        public boolean isPartial(CharSequence text, int offset, int end, int prefix) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColorCodeReaderTest {
+    @Test
+    void splittingTheInputAnywhereGivesTheSameRuns() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20_000; round++) {
+            String line = TestLines.line(random, random.nextInt(random.nextInt(8) == 0 ? 400 : 60));
+            int[] cuts = new int[random.nextInt(10)];
+            for (int k = 0; k < cuts.length; k++) {
+                cuts[k] = random.nextInt(line.length() + 1);
+            }
+            Arrays.sort(cuts);
+
+            assertEquals(RecordedRuns.lex(line, ColorCodeLexer.ALL_FLAGS), read(line, cuts),
+                () -> line + " cut at " + Arrays.toString(cuts));
+        }
+    }
+
+    @Test
+    void feedsOneCharacterAtATime() {
+        String line = "<#ff0000:#0000ff>gradient</> &x&1&2&3&4&5&6seg &lbold #00ff00 <red>tag</red>";
+        int[] cuts = new int[line.length()];
+        for (int k = 0; k < cuts.length; k++) {
+            cuts[k] = k;
+        }
+        assertEquals(RecordedRuns.lex(line, ColorCodeLexer.ALL_FLAGS), read(line, cuts));
+    }
+
+    @Test
+    void readsFromAReader() throws IOException {
+        String line = TestLines.line(new Random(5), 20_000);
+        RecordedRuns runs = new RecordedRuns();
+        new ColorCodeReader(runs).readFully(new StringReader(line));
+        assertEquals(RecordedRuns.lex(line, ColorCodeLexer.ALL_FLAGS), runs.list());
+    }
+
+    private static List<String> read(String line, int[] cuts) {
+        RecordedRuns runs = new RecordedRuns();
+        ColorCodeReader reader = new ColorCodeReader(runs);
+        int start = 0;
+        for (int cut : cuts) {
+            reader.feed(line, start, cut);
+            start = cut;
+        }
+        reader.feed(line, start, line.length());
+        reader.finish();
+        return runs.list();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IncrementalStyleRunsTest {
+    @Test
+    void editsGiveTheSameTokensAsLexingFromScratch() {
+        Random random = new Random(1);
+        IncrementalStyleRuns runs = new IncrementalStyleRuns();
+        StringBuilder text = new StringBuilder();
+
+        for (int edit = 0; edit < 20_000; edit++) {
+            int operation = text.isEmpty() ? 0 : random.nextInt(3);
+            if (operation == 0) {
+                text.insert(random.nextInt(text.length() + 1), TestLines.line(random, 1 + random.nextInt(random.nextBoolean() ? 2 : 16)));
+            } else if (operation == 1) {
+                int start = random.nextInt(text.length());
+                text.delete(start, Math.min(text.length(), start + 1 + random.nextInt(5)));
+            } else {
+                text.setCharAt(random.nextInt(text.length()), TestLines.line(random, 1).charAt(0));
+            }
+            if (text.length() > 600) {
+                text.setLength(100);
+            }
+
+            String line = text.toString();
+            runs.update(line, ColorCodeLexer.ALL_FLAGS);
+            IncrementalStyleRuns fresh = new IncrementalStyleRuns();
+            fresh.update(line, ColorCodeLexer.ALL_FLAGS);
+            assertEquals(tokens(fresh), tokens(runs), line);
+        }
+    }
+
+    @Test
+    void legacyColorsOnlyShowsTheColorsThatAreSent() {
+        IncrementalStyleRuns runs = new IncrementalStyleRuns();
+        runs.update("&l#ff0000x<#123456:#abcdef>yz</>", ColorCodeLexer.ALL_FLAGS | ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY);
+        assertEquals(StyleState.ofLegacy(LegacyPalette.nearest(0xff0000), StyleState.BOLD), runs.stateAfter(runs.tokenAt(9)));
+        for (int token = 0; token < runs.size(); token++) {
+            assertFalse(StyleState.isRgb(runs.stateAfter(token)));
+        }
+    }
+
+    private static String tokens(IncrementalStyleRuns runs) {
+        StringBuilder tokens = new StringBuilder();
+        for (int token = 0; token < runs.size(); token++) {
+            tokens.append(runs.tokenStart(token)).append(':').append(Integer.toHexString(runs.stateAfter(token))).append(' ');
+        }
+        return tokens.toString();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LegacyPaletteTest {
+    @Test
+    void legacyColorsMapToThemselves() {
+        for (int color = 0; color < 16; color++) {
+            assertEquals(color, LegacyPalette.nearest(StyleState.legacyRgb(color)));
+        }
+    }
+
+    @Test
+    void nearColorsMapToTheObviousLegacyColor() {
+        assertEquals(12, LegacyPalette.nearest(0xFF4040));
+        assertEquals(2, LegacyPalette.nearest(0x00A000));
+        assertEquals(0, LegacyPalette.nearest(0x050505));
+        assertEquals(15, LegacyPalette.nearest(0xFAFAFA));
+    }
+}
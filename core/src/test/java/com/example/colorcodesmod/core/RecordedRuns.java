@@ -0,0 +1,45 @@
+package com.example.colorcodesmod.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects style runs as {@code "style:text"} strings, merging neighbours of the same style so
+ * two producers can be compared however they happen to split their text.
+ */
+final class RecordedRuns implements StyleSink {
+    private final List<Integer> styles = new ArrayList<>();
+    private final List<StringBuilder> texts = new ArrayList<>();
+
+    static List<String> lex(String text, int flags) {
+        RecordedRuns runs = new RecordedRuns();
+        ColorCodeLexer.lex(text, 0, text.length(), flags, new StyleTracker(runs));
+        return runs.list();
+    }
+
+    static String run(int style, String text) {
+        return Integer.toHexString(style) + ":" + text;
+    }
+
+    @Override
+    public void run(int style, CharSequence source, int start, int end) {
+        if (start == end) {
+            return;
+        }
+        int last = styles.size() - 1;
+        if (last >= 0 && styles.get(last) == style) {
+            texts.get(last).append(source, start, end);
+        } else {
+            styles.add(style);
+            texts.add(new StringBuilder().append(source, start, end));
+        }
+    }
+
+    List<String> list() {
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < styles.size(); i++) {
+            list.add(run(styles.get(i), texts.get(i).toString()));
+        }
+        return list;
+    }
+}
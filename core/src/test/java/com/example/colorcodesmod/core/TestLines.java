@@ -0,0 +1,31 @@
+package com.example.colorcodesmod.core;
+
+import java.util.Random;
+
+/**
+ * Random lines dense in triggers, complete and cut-off codes of every dialect, so fuzz tests
+ * hit the edge cases rather than plain text.
+ */
+final class TestLines {
+    private static final String ALPHABET = "&&&##X0123456789abcdefAFklr xyz<<§/>";
+    private static final String[] PIECES = {
+        "<rainbow>", "</>", "</rainbow>", "<#ff0000:#00ff00>", "<#12", "</rain", "<#a1b2c3:#",
+        "😀", "&x&1&2&3&4&5&6", "<red>", "</red>", "<bold>", "</bold>", "<b>", "<reset>",
+        "<dark_", "<#123456>", "&#abcdef", "&#12", "§l", "<light_purple>"
+    };
+
+    private TestLines() {
+    }
+
+    static String line(Random random, int length) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (random.nextInt(6) == 0) {
+                line.append(PIECES[random.nextInt(PIECES.length)]);
+            } else {
+                line.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return line.toString();
+    }
+}
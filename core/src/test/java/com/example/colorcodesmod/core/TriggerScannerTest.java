@@ -0,0 +1,41 @@
+package com.example.colorcodesmod.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TriggerScannerTest {
+    @Test
+    void findsTheSameTriggersAsACharacterLoop() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20_000; round++) {
+            // From a trigger every few characters to a single one after a long plain span
+            int density = 1 + random.nextInt(random.nextBoolean() ? 8 : 4000);
+            char[] chars = new char[random.nextInt(3000)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = random.nextInt(density) == 0 ? "&§#<".charAt(random.nextInt(4)) : (char) ('a' + random.nextInt(26));
+            }
+            String line = new String(chars);
+            CharBuffer buffer = CharBuffer.wrap(chars);
+
+            int from = chars.length == 0 ? 0 : random.nextInt(chars.length);
+            int expected = reference(line, from, chars.length);
+            assertEquals(expected, TriggerScanner.next(line, from, chars.length));
+            assertEquals(expected, TriggerScanner.next(buffer, from, chars.length));
+            assertEquals(expected, TriggerScanner.scalarNext(line, from, chars.length));
+        }
+    }
+
+    private static int reference(String line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c == '&' || c == '§' || c == '#' || c == '<') {
+                return i;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.colorcodesmod.benchmark;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import com.example.colorcodesmod.handler.ChatColorHandler;
+import com.example.colorcodesmod.handler.TextProcessor;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation budgets of the parsing hot path over the benchmark corpora. Bytes allocated per
+ * call are read from {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}
+ * after a warm-up long enough for the JIT to remove what escape analysis can. Each line is
+ * measured several times and only the lowest count is held against its budget, so a line
+ * measured while a method was still being recompiled doesn't fail the build:
+ * <ul>
+ *     <li>{@code isValidHexColor}: nothing, ever</li>
+ *     <li>{@code previewHexColors} and {@code processText}: nothing when the line has no
+ *     segmented colors to rewrite, otherwise the rewritten string</li>
+ *     <li>{@code parse}: a real parse, which grows with the number of style runs and the
+ *     characters they copy</li>
+ *     <li>{@code processHexColors}: a cached line costs the copy of its tree, which grows with
+ *     the number of style runs but not with the number of characters</li>
+ *     <li>{@code processStyledText}: nothing for chat without codes, which is passed through</li>
+ * </ul>
+ * Run with: ./gradlew checkAllocationBudgets (also part of ./gradlew check)
+ */
+class AllocationBudgetTest {
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_CALLS = 16;
+    private static final int MEASUREMENTS = 5;
+
+    // Fixed overhead allowed on paths that have to return something new
+    private static final long BASE_BYTES = 256;
+    // A copied run: its MutableText and sibling list
+    private static final long BYTES_PER_RUN = 128;
+    // A parsed run: its MutableText, literal content and string, and its slot in the sibling list
+    private static final long BYTES_PER_PARSED_RUN = 192;
+    // The characters a parsed run copies into its string, at worst two bytes each
+    private static final long BYTES_PER_PARSED_CHAR = 2;
+    // A rewritten line: its builder and the final string, at worst two bytes per char each
+    private static final long BYTES_PER_REWRITTEN_CHAR = 4;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Keeps results reachable so the calls can't be optimized away
+    private static volatile Object sink;
+
+    private static ChatColorHandler handler;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        handler = ChatColorHandler.getInstance();
+    }
+
+    @Test
+    void hexColorValidationAllocatesNothing() {
+        List<String> failures = new ArrayList<>();
+        for (ChatCorpus corpus : ChatCorpus.values()) {
+            String[] lines = corpus.lines();
+            check("isValidHexColor", corpus, lines.length, i -> ChatColorHandler.isValidHexColor(lines[i]), i -> 0, failures);
+        }
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    void onlyRewrittenLinesAllocate() {
+        TextProcessor processor = TextProcessor.getInstance();
+        List<String> failures = new ArrayList<>();
+        for (ChatCorpus corpus : ChatCorpus.values()) {
+            String[] lines = corpus.lines();
+            check("previewHexColors", corpus, lines.length, i -> handler.previewHexColors(lines[i]), i -> rewriteBudget(lines[i]), failures);
+            check("processText", corpus, lines.length, i -> processor.processText(lines[i]), i -> rewriteBudget(lines[i]), failures);
+        }
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    void parsingGrowsWithTheRuns() {
+        List<String> failures = new ArrayList<>();
+        for (ChatCorpus corpus : ChatCorpus.values()) {
+            String[] lines = corpus.lines();
+            // Bypasses the parse cache, so every call is a real parse
+            check("parse", corpus, lines.length, i -> handler.parse(lines[i], ColorCodeLexer.ALL_FLAGS),
+                i -> BASE_BYTES + BYTES_PER_PARSED_RUN * runs(lines[i]) + BYTES_PER_PARSED_CHAR * lines[i].length(), failures);
+        }
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    void cacheHitsOnlyCopyTheTree() {
+        List<String> failures = new ArrayList<>();
+        for (ChatCorpus corpus : ChatCorpus.values()) {
+            String[] lines = corpus.lines();
+            Text[] texts = new Text[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                texts[i] = Text.literal(lines[i]);
+            }
+            check("processHexColors", corpus, lines.length, i -> handler.processHexColors(texts[i]),
+                i -> BASE_BYTES + BYTES_PER_RUN * runs(lines[i]), failures);
+        }
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    void chatWithoutCodesPassesThrough() {
+        String[] lines = ChatCorpus.PLAIN.lines();
+        Text[] texts = new Text[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            // Shaped like a vanilla chat line, with a styled part after it
+            texts[i] = Text.translatable("chat.type.text", Text.literal("Steve"), Text.literal(lines[i]))
+                .append(Text.literal(" (edited)").formatted(Formatting.GRAY));
+        }
+
+        List<String> failures = new ArrayList<>();
+        check("processStyledText", ChatCorpus.PLAIN, lines.length, i -> handler.processStyledText(texts[i]), i -> 0, failures);
+        assertWithinBudgets(failures);
+    }
+
+    private static int runs(String line) {
+        return Math.max(1, handler.parse(line, ColorCodeLexer.ALL_FLAGS).getSiblings().size());
+    }
+
+    private static long rewriteBudget(String line) {
+        // Unchanged lines are passed through as the same instance
+        return handler.previewHexColors(line) == line ? 0 : BASE_BYTES + BYTES_PER_REWRITTEN_CHAR * line.length();
+    }
+
+    private static void check(String name, ChatCorpus corpus, int lines, IntFunction<Object> call, IntToLongFunction budget,
+            List<String> failures) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int i = 0; i < lines; i++) {
+                sink = call.apply(i);
+            }
+        }
+
+        long worst = 0;
+        int over = 0;
+        for (int i = 0; i < lines; i++) {
+            long perCall = measure(call, i);
+            worst = Math.max(worst, perCall);
+
+            long lineBudget = budget.applyAsLong(i);
+            if (perCall > lineBudget) {
+                over++;
+                if (over <= 3) {
+                    failures.add(String.format("%s/%s line %d: %d bytes per call, budget %d", name, corpus, i, perCall, lineBudget));
+                }
+            }
+        }
+        System.out.printf("%-17s %-15s worst %6d bytes per call%s%n", name, corpus, worst,
+            over > 0 ? ", " + over + " lines over budget" : "");
+    }
+
+    // Fewest bytes per call over several measurements of the line
+    private static long measure(IntFunction<Object> call, int line) {
+        long fewest = Long.MAX_VALUE;
+        for (int measurement = 0; measurement < MEASUREMENTS; measurement++) {
+            long before = THREADS.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                sink = call.apply(line);
+            }
+            fewest = Math.min(fewest, (THREADS.getCurrentThreadAllocatedBytes() - before) / MEASURED_CALLS);
+        }
+        return fewest;
+    }
+
+    private static void assertWithinBudgets(List<String> failures) {
+        assertTrue(failures.isEmpty(), () -> "Allocation budgets exceeded:\n" + String.join("\n", failures));
+    }
+}
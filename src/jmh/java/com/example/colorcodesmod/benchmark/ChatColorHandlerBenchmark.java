@@ -0,0 +1,93 @@
+package com.example.colorcodesmod.benchmark;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import com.example.colorcodesmod.handler.ChatColorHandler;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.text.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the chat parsing entry points, one operation per corpus line.
+ * Run with the gc profiler (the default in build.gradle) to see allocation per line.
+ * <p>
+ * Every corpus fits in the parse cache, so {@code processHexColors} measures cache hits after
+ * its first iteration; {@code parse} bypasses the cache and measures the parser itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChatColorHandlerBenchmark {
+    @Param
+    public ChatCorpus corpus;
+
+    private ChatColorHandler handler;
+    private String[] lines;
+    private Text[] texts;
+    private String[] hexCandidates;
+
+    @Setup
+    public void setup() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        handler = ChatColorHandler.getInstance();
+        lines = corpus.lines();
+        texts = new Text[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            texts[i] = Text.literal(lines[i]);
+        }
+
+        // One 7-character candidate per line, at its first # or else at its start, the way a color picker field sees input
+        hexCandidates = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int hash = line.indexOf('#');
+            int start = hash >= 0 && hash + 7 <= line.length() ? hash : 0;
+            hexCandidates[i] = line.substring(start, Math.min(line.length(), start + 7));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public void processHexColors(Blackhole blackhole) {
+        for (Text text : texts) {
+            blackhole.consume(handler.processHexColors(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public void parse(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(handler.parse(line, ColorCodeLexer.ALL_FLAGS));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public void previewHexColors(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(handler.previewHexColors(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public void isValidHexColor(Blackhole blackhole) {
+        for (String candidate : hexCandidates) {
+            blackhole.consume(ChatColorHandler.isValidHexColor(candidate));
+        }
+    }
+}
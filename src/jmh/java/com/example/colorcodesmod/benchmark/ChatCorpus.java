@@ -0,0 +1,115 @@
+package com.example.colorcodesmod.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic chat corpora shared by the benchmarks. Every corpus is generated from a fixed
+ * seed so numbers stay comparable between runs and branches.
+ */
+public enum ChatCorpus {
+    // Ordinary chat with no codes at all
+    PLAIN {
+        @Override
+        String line(Random random) {
+            return words(random, 4 + random.nextInt(12));
+        }
+    },
+    // Legacy &<code> colors and formatting only
+    LEGACY {
+        @Override
+        String line(Random random) {
+            StringBuilder line = new StringBuilder();
+            int segments = 2 + random.nextInt(4);
+            for (int i = 0; i < segments; i++) {
+                line.append('&').append(LEGACY_COLORS.charAt(random.nextInt(LEGACY_COLORS.length())));
+                if (random.nextInt(3) == 0) {
+                    line.append('&').append(LEGACY_FORMATS.charAt(random.nextInt(LEGACY_FORMATS.length())));
+                }
+                line.append(words(random, 1 + random.nextInt(4))).append(' ');
+            }
+            return line.toString();
+        }
+    },
+    // A #RRGGBB color every word or two
+    HEAVY_HEX {
+        @Override
+        String line(Random random) {
+            StringBuilder line = new StringBuilder();
+            int segments = 4 + random.nextInt(8);
+            for (int i = 0; i < segments; i++) {
+                appendHex(line.append('#'), random.nextInt(0x1000000));
+                line.append(words(random, 1 + random.nextInt(2))).append(' ');
+            }
+            return line.toString();
+        }
+    },
+    // &X&R&R&G&G&B&B before every character, as produced by per-letter gradient plugins
+    SEGMENTED_SPAM {
+        @Override
+        String line(Random random) {
+            String text = words(random, 2 + random.nextInt(3));
+            StringBuilder line = new StringBuilder(text.length() * 15);
+            for (int i = 0; i < text.length(); i++) {
+                StringBuilder hex = new StringBuilder();
+                appendHex(hex, random.nextInt(0x1000000));
+                line.append("&X");
+                for (int k = 0; k < hex.length(); k++) {
+                    line.append('&').append(hex.charAt(k));
+                }
+                line.append(text.charAt(i));
+            }
+            return line.toString();
+        }
+    },
+    // Mixed syntax filled up to the vanilla 256 character chat limit
+    MAX_LENGTH {
+        @Override
+        String line(Random random) {
+            StringBuilder line = new StringBuilder(MAX_CHAT_LENGTH + 16);
+            ChatCorpus[] mixes = {PLAIN, LEGACY, HEAVY_HEX};
+            while (line.length() < MAX_CHAT_LENGTH) {
+                line.append(mixes[random.nextInt(mixes.length)].line(random)).append(' ');
+            }
+            line.setLength(MAX_CHAT_LENGTH);
+            return line.toString();
+        }
+    };
+
+    public static final int MAX_CHAT_LENGTH = 256;
+    public static final int LINES = 512;
+
+    private static final String LEGACY_COLORS = "0123456789abcdef";
+    private static final String LEGACY_FORMATS = "klmnor";
+    private static final String[] WORDS = {
+        "hello", "anyone", "selling", "diamonds", "at", "spawn", "gg", "lol", "the", "event",
+        "starts", "in", "five", "minutes", "join", "team", "red", "trade", "me", "please",
+        "welcome", "back", "to", "the", "server", "check", "/warp", "shop", "for", "deals"
+    };
+
+    abstract String line(Random random);
+
+    public String[] lines() {
+        Random random = new Random(0xC0105L + ordinal());
+        String[] lines = new String[LINES];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = line(random);
+        }
+        return lines;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static void appendHex(StringBuilder out, int rgb) {
+        String hex = Integer.toHexString(rgb | 0x1000000).substring(1);
+        out.append(hex);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.colorcodesmod.benchmark;
+
+import com.example.colorcodesmod.handler.TextProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the chat input rewrite that runs while the player types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextProcessorBenchmark {
+    @Param
+    public ChatCorpus corpus;
+
+    private TextProcessor processor;
+    private String[] lines;
+
+    @Setup
+    public void setup() {
+        processor = TextProcessor.getInstance();
+        lines = corpus.lines();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public void processText(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(processor.processText(line));
+        }
+    }
+}
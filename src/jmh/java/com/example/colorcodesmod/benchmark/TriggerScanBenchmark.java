@@ -0,0 +1,114 @@
+package com.example.colorcodesmod.benchmark;
+
+import com.example.colorcodesmod.core.TriggerScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding every trigger of a line, the way the lexer walks it: the vector path (the jmh task
+ * enables jdk.incubator.vector), the scalar fallback and a plain per-character loop over the
+ * same four triggers for reference. One operation is one line.
+ * <p>
+ * {@code TAIL_256} and {@code TAIL_4096} are plain lines with a single code at the end, the
+ * case skipping is for; the chat corpora show what it costs on real and code-dense lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TriggerScanBenchmark {
+    @Param({"TAIL_256", "TAIL_4096", "PLAIN", "LEGACY", "HEAVY_HEX", "SEGMENTED_SPAM", "MAX_LENGTH"})
+    public String input;
+
+    private String[] lines;
+    private CharBuffer[] buffers;
+
+    @Setup
+    public void setup() {
+        if (input.startsWith("TAIL_")) {
+            lines = new String[ChatCorpus.LINES];
+            Arrays.fill(lines, tailLine(Integer.parseInt(input.substring("TAIL_".length()))));
+        } else {
+            lines = ChatCorpus.valueOf(input).lines();
+        }
+
+        buffers = new CharBuffer[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            buffers[i] = CharBuffer.wrap(lines[i].toCharArray());
+        }
+    }
+
+    // Plain text with a single code right at the end, the case skipping is for
+    private static String tailLine(int length) {
+        Random random = new Random(42);
+        char[] chars = new char[length];
+        for (int i = 0; i < length - 2; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        chars[length - 2] = '&';
+        chars[length - 1] = 'c';
+        return new String(chars);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public int vectorString() {
+        int triggers = 0;
+        for (String line : lines) {
+            for (int i = TriggerScanner.next(line, 0, line.length()); i < line.length(); i = TriggerScanner.next(line, i + 1, line.length())) {
+                triggers++;
+            }
+        }
+        return triggers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public int vectorCharBuffer() {
+        int triggers = 0;
+        for (CharBuffer buffer : buffers) {
+            for (int i = TriggerScanner.next(buffer, 0, buffer.length()); i < buffer.length(); i = TriggerScanner.next(buffer, i + 1, buffer.length())) {
+                triggers++;
+            }
+        }
+        return triggers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public int scalarString() {
+        int triggers = 0;
+        for (String line : lines) {
+            for (int i = TriggerScanner.scalarNext(line, 0, line.length()); i < line.length(); i = TriggerScanner.scalarNext(line, i + 1, line.length())) {
+                triggers++;
+            }
+        }
+        return triggers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ChatCorpus.LINES)
+    public int perCharacterLoop() {
+        int triggers = 0;
+        for (String line : lines) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '&' || c == '§' || c == '#' || c == '<') {
+                    triggers++;
+                }
+            }
+        }
+        return triggers;
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.colorcodesmod;
 
+import com.example.colorcodesmod.command.ColorCodesCommand;
 import com.example.colorcodesmod.config.ConfigManager;
+import com.example.colorcodesmod.config.ConfigPersister;
+import com.example.colorcodesmod.config.ConfigWatcher;
 import com.example.colorcodesmod.config.ServerConfig;
 import com.example.colorcodesmod.handler.ChatColorHandler;
 import com.example.colorcodesmod.handler.TextProcessor;
@@ -9,6 +12,7 @@ import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.message.v1.ClientSendMessageEvents;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
 import org.slf4j.Logger;
@@ -20,11 +24,17 @@ public class ColorCodesMod implements ClientModInitializer {
     public static final Logger LOGGER = LoggerFactory.getLogger("colorcodesmod");
     public static final String MOD_ID = "colorcodesmod";
     
-    public static ConfigManager configManager;
-    public static ServerConfig serverConfig;
-    public static ChatColorHandler chatColorHandler;
+    // How long shutdown waits for pending config writes
+    private static final long SAVE_FLUSH_TIMEOUT_MILLIS = 2000;
+    
+    // Set once during initialization and read from worker threads, so published through volatile
+    public static volatile ConfigManager configManager;
+    public static volatile ServerConfig serverConfig;
+    public static volatile ConfigPersister configPersister;
+    public static volatile ChatColorHandler chatColorHandler;
     
     private static KeyBinding openConfigScreenKey;
+    private static ConfigWatcher configWatcher;
     
     @Override
     public void onInitializeClient() {
@@ -34,6 +44,7 @@ public class ColorCodesMod implements ClientModInitializer {
             configManager = new ConfigManager();
             serverConfig = new ServerConfig();
             chatColorHandler = ChatColorHandler.getInstance();
+            chatColorHandler.initialize();
             
             // Initialize TextProcessor
             TextProcessor textProcessor = TextProcessor.getInstance();
@@ -42,6 +53,11 @@ public class ColorCodesMod implements ClientModInitializer {
             // Initialize configs
             configManager.loadConfig();
             serverConfig.loadConfig();
+            configPersister = new ConfigPersister(configManager, serverConfig);
+            
+            // Pick up edits made to the config files while the game is running
+            configWatcher = new ConfigWatcher(FabricLoader.getInstance().getConfigDir(), configManager, serverConfig);
+            configWatcher.start();
             
             // Register lifecycle events
             ClientLifecycleEvents.CLIENT_STARTED.register(client -> {
@@ -49,12 +65,13 @@ public class ColorCodesMod implements ClientModInitializer {
             });
             
             ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
-                try {
-                    configManager.saveConfig();
-                    serverConfig.saveConfig();
+                configWatcher.stop();
+                textProcessor.shutdown();
+                configPersister.saveAll();
+                if (configPersister.flush(SAVE_FLUSH_TIMEOUT_MILLIS)) {
                     LOGGER.info("Configs saved successfully");
-                } catch (IOException e) {
-                    LOGGER.error("Failed to save configs: {}", e.getMessage());
+                } else {
+                    LOGGER.warn("Config saves did not finish within {} ms", SAVE_FLUSH_TIMEOUT_MILLIS);
                 }
             });
             
@@ -64,6 +81,9 @@ public class ColorCodesMod implements ClientModInitializer {
                 // The actual processing is handled by the TextProcessor's real-time input handling
             });
             
+            // /colorcodes client command
+            ColorCodesCommand.register();
+            
             // Register key bindings
             registerKeyBindings();
             
@@ -0,0 +1,61 @@
+package com.example.colorcodesmod.command;
+
+import com.example.colorcodesmod.ColorCodesMod;
+import com.example.colorcodesmod.handler.ParseCache;
+import com.example.colorcodesmod.metrics.PipelineMetrics;
+import com.mojang.brigadier.context.CommandContext;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+/**
+ * The client-side {@code /colorcodes} command:
+ * <ul>
+ *     <li>{@code /colorcodes stats} prints the pipeline counters</li>
+ *     <li>{@code /colorcodes stats reset} starts counting from zero</li>
+ *     <li>{@code /colorcodes stats overlay} toggles the counters above the chat input</li>
+ * </ul>
+ */
+public final class ColorCodesCommand {
+    private ColorCodesCommand() {
+    }
+
+    public static void register() {
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> dispatcher.register(
+            ClientCommandManager.literal("colorcodes")
+                .then(ClientCommandManager.literal("stats")
+                    .executes(ColorCodesCommand::showStats)
+                    .then(ClientCommandManager.literal("reset").executes(ColorCodesCommand::resetStats))
+                    .then(ClientCommandManager.literal("overlay").executes(ColorCodesCommand::toggleOverlay)))
+        ));
+    }
+
+    private static int showStats(CommandContext<FabricClientCommandSource> context) {
+        FabricClientCommandSource source = context.getSource();
+        source.sendFeedback(Text.literal("Color Codes Mod pipeline").formatted(Formatting.BOLD));
+        for (String line : PipelineMetrics.snapshot().lines()) {
+            source.sendFeedback(Text.literal(line).formatted(Formatting.GRAY));
+        }
+
+        ParseCache cache = ColorCodesMod.chatColorHandler.getParseCache();
+        source.sendFeedback(Text.literal("Parse cache: " + cache.size() + " entries, " + cache.getEvictions() + " evictions")
+            .formatted(Formatting.GRAY));
+        return 1;
+    }
+
+    private static int resetStats(CommandContext<FabricClientCommandSource> context) {
+        PipelineMetrics.reset();
+        context.getSource().sendFeedback(Text.literal("Color Codes Mod stats reset"));
+        return 1;
+    }
+
+    private static int toggleOverlay(CommandContext<FabricClientCommandSource> context) {
+        boolean show = !ColorCodesMod.configManager.getConfig().showStatsOverlay;
+        ColorCodesMod.configManager.getConfig().showStatsOverlay = show;
+        ColorCodesMod.configPersister.saveConfig();
+        context.getSource().sendFeedback(Text.literal("Stats overlay " + (show ? "shown" : "hidden") + " above the chat input"));
+        return 1;
+    }
+}
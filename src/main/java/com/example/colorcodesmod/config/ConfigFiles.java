@@ -0,0 +1,77 @@
+package com.example.colorcodesmod.config;
+
+import com.example.colorcodesmod.metrics.ConfigIoEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reading and crash-safe replacement of the config files, recorded as JFR events.
+ * <p>
+ * The new contents go to a temp file next to the target, are forced to disk, and the temp file
+ * is then moved over the target in one step. A crash at any point leaves either the old or the
+ * new file, never a truncated one.
+ */
+final class ConfigFiles {
+    private ConfigFiles() {
+    }
+
+    // operation names what the read is for in the recorded event, e.g. "load" or "reload"
+    static String read(Path file, String operation) throws IOException {
+        ConfigIoEvent event = new ConfigIoEvent();
+        event.begin();
+        boolean success = false;
+        String contents = null;
+        try {
+            contents = Files.readString(file, StandardCharsets.UTF_8);
+            success = true;
+            return contents;
+        } finally {
+            event.finish(file.getFileName().toString(), operation, contents != null ? contents.length() : 0, success);
+        }
+    }
+
+    static void writeAtomically(Path target, String contents) throws IOException {
+        ConfigIoEvent event = new ConfigIoEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            replace(target, contents);
+            success = true;
+        } finally {
+            event.finish(target.getFileName().toString(), "save", contents.length(), success);
+        }
+    }
+
+    private static void replace(Path target, String contents) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Some file systems can't replace atomically; a plain replace still never truncates
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
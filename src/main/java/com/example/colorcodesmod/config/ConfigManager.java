@@ -2,18 +2,22 @@ package com.example.colorcodesmod.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 
 public class ConfigManager {
+    public static final String FILE_NAME = "colorcodesmod.json";
+    
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final File CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve("colorcodesmod.json").toFile();
+    private static final File CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME).toFile();
     
-    private Config config;
+    // Swapped as a whole on reload, so readers on other threads see either the old or the new config
+    private volatile Config config;
+    // File contents as last loaded or written by the mod, used to tell our own writes from outside edits
+    private volatile String lastSyncedJson;
     
     public ConfigManager() {
         this.config = new Config();
@@ -21,24 +25,66 @@ public class ConfigManager {
     
     public void loadConfig() throws IOException {
         if (CONFIG_FILE.exists()) {
-            try (FileReader reader = new FileReader(CONFIG_FILE)) {
-                this.config = GSON.fromJson(reader, Config.class);
-                if (this.config == null) {
-                    this.config = new Config();
-                }
-            }
+            String json = ConfigFiles.read(CONFIG_FILE.toPath(), "load");
+            Config loaded = parse(json);
+            this.config = loaded != null ? loaded : new Config();
+            this.lastSyncedJson = json;
         } else {
             saveConfig();
         }
     }
     
-    public void saveConfig() throws IOException {
-        if (!CONFIG_FILE.getParentFile().exists()) {
-            CONFIG_FILE.getParentFile().mkdirs();
+    /**
+     * Re-reads the file after an outside edit and swaps the new config in. Returns false when the
+     * file is missing or still holds what the mod itself last loaded or wrote; throws when the new
+     * contents are invalid, in which case the current config stays in effect.
+     */
+    public boolean reloadIfChanged() throws IOException {
+        if (!CONFIG_FILE.exists()) {
+            return false;
         }
         
-        try (FileWriter writer = new FileWriter(CONFIG_FILE)) {
-            GSON.toJson(config, writer);
+        String json = ConfigFiles.read(CONFIG_FILE.toPath(), "reload");
+        if (json.equals(lastSyncedJson)) {
+            return false;
+        }
+        
+        Config loaded = parse(json);
+        if (loaded == null) {
+            throw new IOException(FILE_NAME + " is empty");
+        }
+        this.lastSyncedJson = json;
+        this.config = loaded;
+        return true;
+    }
+    
+    // Writes the current config on the calling thread; the game saves through ConfigPersister instead
+    public void saveConfig() throws IOException {
+        writeConfig(snapshot());
+    }
+    
+    // Copy of the current config that another thread can serialize while this one is edited
+    public Config snapshot() {
+        return config.copy();
+    }
+    
+    public void writeConfig(Config snapshot) throws IOException {
+        String json = GSON.toJson(snapshot);
+        // Recorded before writing so the file watcher never mistakes this write for an outside edit
+        this.lastSyncedJson = json;
+        ConfigFiles.writeAtomically(CONFIG_FILE.toPath(), json);
+    }
+    
+    // Parsed and validated config, or null for an empty file
+    private static Config parse(String json) throws IOException {
+        try {
+            Config parsed = GSON.fromJson(json, Config.class);
+            if (parsed != null) {
+                parsed.validate();
+            }
+            return parsed;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid " + FILE_NAME + ": " + e.getMessage(), e);
         }
     }
     
@@ -50,7 +96,16 @@ public class ConfigManager {
         public boolean enabled = true;
         public boolean enableHexColor = true;
         public boolean enableSegmentedHexColor = true;
+        public boolean enableGradients = true;
+        public boolean enableAmpersandHexColor = true;
+        public boolean enableHexTags = true;
+        public boolean enableNamedTags = true;
+        // Off by default: servers send § codes already applied, so raw ones are usually meant literally
+        public boolean enableSectionSign = false;
+        // Shows and sends hex colors as the nearest legacy color, for servers that strip hex colors
+        public boolean legacyColorsOnly = false;
         public boolean showPreview = true;
+        public boolean showStatsOverlay = false;
         public String previewText = "Hello, World! This is a color preview. &X&R&R&G&G&B&B #RRGGBB";
         
         // Default colors for preview
@@ -65,5 +120,34 @@ public class ConfigManager {
         };
         
         public Config() {}
+        
+        Config copy() {
+            Config copy = new Config();
+            copy.enabled = enabled;
+            copy.enableHexColor = enableHexColor;
+            copy.enableSegmentedHexColor = enableSegmentedHexColor;
+            copy.enableGradients = enableGradients;
+            copy.enableAmpersandHexColor = enableAmpersandHexColor;
+            copy.enableHexTags = enableHexTags;
+            copy.enableNamedTags = enableNamedTags;
+            copy.enableSectionSign = enableSectionSign;
+            copy.legacyColorsOnly = legacyColorsOnly;
+            copy.showPreview = showPreview;
+            copy.showStatsOverlay = showStatsOverlay;
+            copy.previewText = previewText;
+            copy.favoriteColors = favoriteColors.clone();
+            return copy;
+        }
+        
+        // Replaces values an edited file may have left null with the defaults
+        void validate() {
+            Config defaults = new Config();
+            if (previewText == null) {
+                previewText = defaults.previewText;
+            }
+            if (favoriteColors == null) {
+                favoriteColors = defaults.favoriteColors;
+            }
+        }
     }
 }
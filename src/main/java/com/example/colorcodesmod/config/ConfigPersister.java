@@ -0,0 +1,92 @@
+package com.example.colorcodesmod.config;
+
+import com.example.colorcodesmod.ColorCodesMod;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Write-behind saving for both config files.
+ * <p>
+ * A save request only takes a snapshot of the current values, so it never blocks the render
+ * thread; serializing and writing happen on a single daemon thread. Requests that arrive while
+ * a write is still queued replace its snapshot instead of queueing another write, so a burst of
+ * saves costs one write of the newest values.
+ */
+public class ConfigPersister {
+    private final ConfigManager configManager;
+    private final ServerConfig serverConfig;
+    private final ExecutorService executor;
+
+    // Newest snapshot that still has to be written, or null
+    private final AtomicReference<ConfigManager.Config> pendingConfig = new AtomicReference<>();
+    private final AtomicReference<ServerConfig.ServerConfigData> pendingServerConfig = new AtomicReference<>();
+
+    public ConfigPersister(ConfigManager configManager, ServerConfig serverConfig) {
+        this.configManager = configManager;
+        this.serverConfig = serverConfig;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "colorcodesmod-config-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void saveAll() {
+        saveConfig();
+        saveServerConfig();
+    }
+
+    public void saveConfig() {
+        if (pendingConfig.getAndSet(configManager.snapshot()) == null) {
+            executor.execute(this::writeConfig);
+        }
+    }
+
+    public void saveServerConfig() {
+        if (pendingServerConfig.getAndSet(serverConfig.snapshot()) == null) {
+            executor.execute(this::writeServerConfig);
+        }
+    }
+
+    /**
+     * Waits at most {@code timeoutMillis} for the queued writes and stops the writer thread.
+     * Returns false when the writes didn't finish in time.
+     */
+    public boolean flush(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void writeConfig() {
+        ConfigManager.Config snapshot = pendingConfig.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            configManager.writeConfig(snapshot);
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.error("Failed to save {}: {}", ConfigManager.FILE_NAME, e.getMessage());
+        }
+    }
+
+    private void writeServerConfig() {
+        ServerConfig.ServerConfigData snapshot = pendingServerConfig.getAndSet(null);
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            serverConfig.writeConfig(snapshot);
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.error("Failed to save {}: {}", ServerConfig.FILE_NAME, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.colorcodesmod.config;
+
+import com.example.colorcodesmod.ColorCodesMod;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the mod's config files when they are edited outside the game.
+ * <p>
+ * A daemon thread watches the config directory. Change events are debounced, since editors
+ * often write a file in several steps, and the file is then read, parsed and validated on that
+ * same thread. Only a valid result is swapped in. A file that still holds what the mod itself
+ * last loaded or wrote is ignored, so saves from the config screens never come back as reloads.
+ */
+public class ConfigWatcher {
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final Path directory;
+    private final ConfigManager configManager;
+    private final ServerConfig serverConfig;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(Path directory, ConfigManager configManager, ServerConfig serverConfig) {
+        this.directory = directory;
+        this.configManager = configManager;
+        this.serverConfig = serverConfig;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.warn("Config hot reload unavailable: {}", e.getMessage());
+            return;
+        }
+
+        thread = new Thread(this::watch, "colorcodesmod-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+        thread = null;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.warn("Failed to close config watcher: {}", e.getMessage());
+        }
+    }
+
+    private void watch() {
+        boolean configChanged = false;
+        boolean serversChanged = false;
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // Block until something happens, or wait out the debounce once a change is pending
+                WatchKey key = configChanged || serversChanged
+                    ? watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
+                    : watchService.take();
+
+                if (key == null) {
+                    // Quiet for a whole debounce period: the edit is finished
+                    if (configChanged) {
+                        reloadConfig();
+                    }
+                    if (serversChanged) {
+                        reloadServerConfig();
+                    }
+                    configChanged = false;
+                    serversChanged = false;
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        configChanged = true;
+                        serversChanged = true;
+                        continue;
+                    }
+
+                    String fileName = event.context().toString();
+                    if (fileName.equals(ConfigManager.FILE_NAME)) {
+                        configChanged = true;
+                    } else if (fileName.equals(ServerConfig.FILE_NAME)) {
+                        serversChanged = true;
+                    }
+                }
+
+                if (!key.reset()) {
+                    ColorCodesMod.LOGGER.warn("Config directory is no longer accessible, hot reload stopped");
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    private void reloadConfig() {
+        try {
+            // Parse caches check the syntax flags on every lookup, so they clear themselves
+            if (configManager.reloadIfChanged()) {
+                ColorCodesMod.LOGGER.info("Reloaded {}", ConfigManager.FILE_NAME);
+            }
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.warn("Keeping current config, reload failed: {}", e.getMessage());
+        }
+    }
+
+    private void reloadServerConfig() {
+        try {
+            if (serverConfig.reloadIfChanged()) {
+                ColorCodesMod.LOGGER.info("Reloaded {}", ServerConfig.FILE_NAME);
+            }
+        } catch (IOException e) {
+            ColorCodesMod.LOGGER.warn("Keeping current server rules, reload failed: {}", e.getMessage());
+        }
+    }
+}
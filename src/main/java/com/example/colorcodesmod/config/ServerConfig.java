@@ -2,19 +2,23 @@ package com.example.colorcodesmod.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
 
 public class ServerConfig {
+    public static final String FILE_NAME = "colorcodesmod_servers.json";
+    
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final File SERVER_CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve("colorcodesmod_servers.json").toFile();
+    private static final File SERVER_CONFIG_FILE = FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME).toFile();
     
-    private ServerConfigData config;
+    // Swapped as a whole on reload, so readers on other threads see either the old or the new rules
+    private volatile ServerConfigData config;
+    // File contents as last loaded or written by the mod, used to tell our own writes from outside edits
+    private volatile String lastSyncedJson;
     
     public ServerConfig() {
         this.config = new ServerConfigData();
@@ -22,24 +26,66 @@ public class ServerConfig {
     
     public void loadConfig() throws IOException {
         if (SERVER_CONFIG_FILE.exists()) {
-            try (FileReader reader = new FileReader(SERVER_CONFIG_FILE)) {
-                this.config = GSON.fromJson(reader, ServerConfigData.class);
-                if (this.config == null) {
-                    this.config = new ServerConfigData();
-                }
-            }
+            String json = ConfigFiles.read(SERVER_CONFIG_FILE.toPath(), "load");
+            ServerConfigData loaded = parse(json);
+            this.config = loaded != null ? loaded : new ServerConfigData();
+            this.lastSyncedJson = json;
         } else {
             saveConfig();
         }
     }
     
-    public void saveConfig() throws IOException {
-        if (!SERVER_CONFIG_FILE.getParentFile().exists()) {
-            SERVER_CONFIG_FILE.getParentFile().mkdirs();
+    /**
+     * Re-reads the file after an outside edit and swaps the new rules in. Returns false when the
+     * file is missing or unchanged since the mod last loaded or wrote it; throws when the new
+     * contents are invalid, in which case the current rules stay in effect.
+     */
+    public boolean reloadIfChanged() throws IOException {
+        if (!SERVER_CONFIG_FILE.exists()) {
+            return false;
         }
         
-        try (FileWriter writer = new FileWriter(SERVER_CONFIG_FILE)) {
-            GSON.toJson(config, writer);
+        String json = ConfigFiles.read(SERVER_CONFIG_FILE.toPath(), "reload");
+        if (json.equals(lastSyncedJson)) {
+            return false;
+        }
+        
+        ServerConfigData loaded = parse(json);
+        if (loaded == null) {
+            throw new IOException(FILE_NAME + " is empty");
+        }
+        this.lastSyncedJson = json;
+        this.config = loaded;
+        return true;
+    }
+    
+    // Writes the current rules on the calling thread; the game saves through ConfigPersister instead
+    public void saveConfig() throws IOException {
+        writeConfig(snapshot());
+    }
+    
+    // Copy of the current rules that another thread can serialize while this one is edited
+    public ServerConfigData snapshot() {
+        return config.copy();
+    }
+    
+    public void writeConfig(ServerConfigData snapshot) throws IOException {
+        String json = GSON.toJson(snapshot);
+        // Recorded before writing so the file watcher never mistakes this write for an outside edit
+        this.lastSyncedJson = json;
+        ConfigFiles.writeAtomically(SERVER_CONFIG_FILE.toPath(), json);
+    }
+    
+    // Parsed and validated rules, or null for an empty file
+    private static ServerConfigData parse(String json) throws IOException {
+        try {
+            ServerConfigData parsed = GSON.fromJson(json, ServerConfigData.class);
+            if (parsed != null) {
+                parsed.validate();
+            }
+            return parsed;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid " + FILE_NAME + ": " + e.getMessage(), e);
         }
     }
     
@@ -48,16 +94,19 @@ public class ServerConfig {
             return config.defaultEnabled;
         }
         
-        Boolean status = config.serverRules.get(serverAddress);
-        return status != null ? status : config.defaultEnabled;
+        ServerConfigData data = config;
+        Boolean status = data.compiledRules.match(serverAddress);
+        return status != null ? status : data.defaultEnabled;
     }
     
     public void addServerRule(String serverAddress, boolean enabled) {
         config.serverRules.put(serverAddress, enabled);
+        config.compileRules();
     }
     
     public void removeServerRule(String serverAddress) {
         config.serverRules.remove(serverAddress);
+        config.compileRules();
     }
     
     public Map<String, Boolean> getServerRules() {
@@ -76,6 +125,31 @@ public class ServerConfig {
         public boolean defaultEnabled = true;
         public Map<String, Boolean> serverRules = new HashMap<>();
         
+        // Lookup form of serverRules, recompiled whenever they change; not saved
+        private transient volatile ServerRules compiledRules = ServerRules.EMPTY;
+        
         public ServerConfigData() {}
+        
+        ServerConfigData copy() {
+            ServerConfigData copy = new ServerConfigData();
+            copy.defaultEnabled = defaultEnabled;
+            copy.serverRules = new HashMap<>(serverRules);
+            copy.compiledRules = compiledRules;
+            return copy;
+        }
+        
+        void compileRules() {
+            compiledRules = ServerRules.compile(serverRules);
+        }
+        
+        // Drops what an edited file may have left null
+        void validate() {
+            if (serverRules == null) {
+                serverRules = new HashMap<>();
+            }
+            serverRules.keySet().removeIf(Objects::isNull);
+            serverRules.values().removeIf(Objects::isNull);
+            compileRules();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+package com.example.colorcodesmod.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Server rules compiled for fast lookup. Instances are immutable; editing the rules compiles a
+ * new one.
+ * <p>
+ * Host rules go into a trie keyed by domain labels from the right, so looking up an address
+ * walks one node per label no matter how many rules there are. IPv4 ranges are flattened into
+ * sorted, disjoint intervals that are binary searched. The most specific matching rule wins:
+ * <ol>
+ *     <li>the exact host, with its exact port before {@code host:*}</li>
+ *     <li>the narrowest IPv4 range containing the address</li>
+ *     <li>the {@code *.domain} wildcard with the most labels, again port before {@code :*}</li>
+ * </ol>
+ * A rule without a port means the default port, just like an address without one. Strings that
+ * aren't valid patterns still work as exact rules, as they did before patterns existed.
+ * <p>
+ * Rules that tie (the same host written in different case, or two equally wide ranges) resolve
+ * to disabled when they disagree, whatever order the rule map iterates in.
+ */
+public final class ServerRules {
+    public static final ServerRules EMPTY = compile(Map.of());
+
+    private static final int DEFAULT_PORT = 25565;
+    private static final int ANY_PORT = -1;
+
+    private final Node root;
+    // Disjoint IPv4 intervals as unsigned ints, sorted by start, with the winning rule of each
+    private final long[] rangeStarts;
+    private final long[] rangeEnds;
+    private final boolean[] rangeEnabled;
+
+    // Chat messages all check the same address, so the last answer is kept
+    private volatile Lookup lastLookup;
+
+    private record Lookup(String address, Boolean enabled) {
+    }
+
+    private ServerRules(Node root, long[] rangeStarts, long[] rangeEnds, boolean[] rangeEnabled) {
+        this.root = root;
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.rangeEnabled = rangeEnabled;
+    }
+
+    public static ServerRules compile(Map<String, Boolean> rules) {
+        Node root = new Node();
+        List<long[]> ranges = new ArrayList<>();
+        List<Boolean> rangeValues = new ArrayList<>();
+
+        for (Map.Entry<String, Boolean> rule : rules.entrySet()) {
+            String pattern = rule.getKey().trim().toLowerCase(Locale.ROOT);
+            boolean enabled = rule.getValue();
+
+            long[] range = parseRange(pattern);
+            if (range != null) {
+                ranges.add(range);
+                rangeValues.add(enabled);
+                continue;
+            }
+
+            String host = host(pattern);
+            int port = port(pattern, host);
+            if (host.startsWith("*.") && host.length() > 2) {
+                root.descend(host.substring(2)).subdomains.merge(port, enabled, Boolean::logicalAnd);
+            } else {
+                root.descend(host).exact.merge(port, enabled, Boolean::logicalAnd);
+            }
+        }
+
+        return flattenRanges(root, ranges, rangeValues);
+    }
+
+    /**
+     * The value of the most specific rule matching {@code address} ({@code host} or
+     * {@code host:port}), or null when no rule matches.
+     */
+    public Boolean match(String address) {
+        Lookup last = lastLookup;
+        if (last != null && last.address.equals(address)) {
+            return last.enabled;
+        }
+
+        String normalized = address.trim().toLowerCase(Locale.ROOT);
+        String host = host(normalized);
+        int port = port(normalized, host);
+        Boolean enabled = matchHost(host, port);
+        if (enabled == null) {
+            enabled = matchRange(host);
+        }
+        if (enabled == null) {
+            enabled = matchWildcard(host, port);
+        }
+
+        lastLookup = new Lookup(address, enabled);
+        return enabled;
+    }
+
+    private Boolean matchHost(String host, int port) {
+        Node node = root;
+        int end = host.length();
+        while (node != null && end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(dot + 1, end));
+            end = dot;
+        }
+        return node != null && end <= 0 ? portMatch(node.exact, port) : null;
+    }
+
+    // Deepest *.domain rule covering host, checked only for labels still left below it
+    private Boolean matchWildcard(String host, int port) {
+        Boolean best = null;
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(dot + 1, end));
+            end = dot;
+            if (node == null || end <= 0) {
+                break;
+            }
+            Boolean match = portMatch(node.subdomains, port);
+            if (match != null) {
+                best = match;
+            }
+        }
+        return best;
+    }
+
+    private Boolean matchRange(String host) {
+        long ip = parseIpv4(host);
+        if (ip < 0 || rangeStarts.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(rangeStarts, ip);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index >= 0 && ip <= rangeEnds[index] ? rangeEnabled[index] : null;
+    }
+
+    private static Boolean portMatch(Map<Integer, Boolean> ports, int port) {
+        if (ports.isEmpty()) {
+            return null;
+        }
+        Boolean exact = ports.get(port);
+        return exact != null ? exact : ports.get(ANY_PORT);
+    }
+
+    private static String host(String address) {
+        if (address.startsWith("[")) {
+            // Bracketed IPv6 literal
+            int close = address.indexOf(']');
+            return close > 0 ? address.substring(1, close) : address;
+        }
+        int colon = address.indexOf(':');
+        String host = colon >= 0 && colon == address.lastIndexOf(':') ? address.substring(0, colon) : address;
+        return host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+    }
+
+    // Port after host, ANY_PORT for ":*", the default port when missing or malformed
+    private static int port(String address, String host) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0 || colon < address.indexOf(host) + host.length()) {
+            return DEFAULT_PORT;
+        }
+        String port = address.substring(colon + 1);
+        if (port.equals("*")) {
+            return ANY_PORT;
+        }
+        try {
+            return Integer.parseInt(port);
+        } catch (NumberFormatException e) {
+            return DEFAULT_PORT;
+        }
+    }
+
+    // [first, last] of "a.b.c.d/bits" or "a.b.c.d-e.f.g.h", or null when pattern is neither
+    private static long[] parseRange(String pattern) {
+        int slash = pattern.indexOf('/');
+        if (slash > 0) {
+            long base = parseIpv4(pattern.substring(0, slash));
+            int bits;
+            try {
+                bits = Integer.parseInt(pattern.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (base < 0 || bits < 0 || bits > 32) {
+                return null;
+            }
+            long size = 1L << (32 - bits);
+            long first = base & ~(size - 1) & 0xFFFFFFFFL;
+            return new long[] {first, first + size - 1};
+        }
+
+        int dash = pattern.indexOf('-');
+        if (dash > 0) {
+            long first = parseIpv4(pattern.substring(0, dash));
+            long last = parseIpv4(pattern.substring(dash + 1));
+            if (first >= 0 && last >= first) {
+                return new long[] {first, last};
+            }
+        }
+        return null;
+    }
+
+    // Dotted quad as an unsigned int, or -1
+    private static long parseIpv4(String host) {
+        long ip = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= host.length(); i++) {
+            char c = i < host.length() ? host.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || value > 255 || ++octets > 4) {
+                    return -1;
+                }
+                ip = (ip << 8) | value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? ip : -1;
+    }
+
+    /**
+     * Splits possibly overlapping ranges into disjoint intervals, each owned by the narrowest
+     * range covering it (a disabled one on a tie), and merges neighbours with the same value.
+     */
+    private static ServerRules flattenRanges(Node root, List<long[]> ranges, List<Boolean> values) {
+        long[] bounds = new long[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            bounds[i * 2] = ranges.get(i)[0];
+            bounds[i * 2 + 1] = ranges.get(i)[1] + 1;
+        }
+        Arrays.sort(bounds);
+
+        long[] starts = new long[bounds.length];
+        long[] ends = new long[bounds.length];
+        boolean[] enabled = new boolean[bounds.length];
+        int count = 0;
+        for (int b = 0; b + 1 < bounds.length; b++) {
+            long start = bounds[b];
+            long end = bounds[b + 1] - 1;
+            if (end < start) {
+                continue;
+            }
+
+            int owner = -1;
+            for (int r = 0; r < ranges.size(); r++) {
+                long[] range = ranges.get(r);
+                if (range[0] > start || range[1] < end) {
+                    continue;
+                }
+                long width = range[1] - range[0];
+                long ownerWidth = owner >= 0 ? ranges.get(owner)[1] - ranges.get(owner)[0] : Long.MAX_VALUE;
+                if (width < ownerWidth || width == ownerWidth && !values.get(r)) {
+                    owner = r;
+                }
+            }
+            if (owner < 0) {
+                continue;
+            }
+
+            boolean value = values.get(owner);
+            if (count > 0 && ends[count - 1] + 1 == start && enabled[count - 1] == value) {
+                ends[count - 1] = end;
+            } else {
+                starts[count] = start;
+                ends[count] = end;
+                enabled[count] = value;
+                count++;
+            }
+        }
+
+        return new ServerRules(root, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), Arrays.copyOf(enabled, count));
+    }
+
+    // One domain label; rules are keyed by port, with ANY_PORT for "host:*"
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final Map<Integer, Boolean> exact = new HashMap<>();
+        private final Map<Integer, Boolean> subdomains = new HashMap<>();
+
+        private Node descend(String host) {
+            Node node = this;
+            int end = host.length();
+            while (end > 0) {
+                int dot = host.lastIndexOf('.', end - 1);
+                node = node.children.computeIfAbsent(host.substring(dot + 1, end), label -> new Node());
+                end = dot;
+            }
+            return node;
+        }
+    }
+}
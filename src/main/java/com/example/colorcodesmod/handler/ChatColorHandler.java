@@ -1,35 +1,55 @@
 package com.example.colorcodesmod.handler;
 
+import com.example.colorcodesmod.ColorCodesMod;
+import com.example.colorcodesmod.config.ConfigManager;
+import com.example.colorcodesmod.core.CodeEncoder;
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import com.example.colorcodesmod.metrics.ParseEvent;
+import com.example.colorcodesmod.metrics.PipelineMetrics;
 import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
 import net.fabricmc.fabric.api.client.message.v1.ClientSendMessageEvents;
 import net.minecraft.text.*;
-import net.minecraft.util.Formatting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.*;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Optional;
 
+/**
+ * Entry point for turning color codes into styled text.
+ * <p>
+ * Safe to call from any thread at the same time (the render thread, the network thread and
+ * the pipeline workers): the lexer and dialects are stateless, the parse cache is synchronized,
+ * and the only mutable parsing state is a builder each thread reuses for itself.
+ */
 public class ChatColorHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger("colorcodesmod");
-    private static ChatColorHandler instance;
+    // Longest chat message the server accepts
+    private static final int MAX_CHAT_LENGTH = 256;
     
-    // Regex patterns for color codes
-    private static final Pattern HEX_COLOR_PATTERN = Pattern.compile("#([0-9A-Fa-f]{6})");
-    private static final Pattern SEGMENTED_HEX_PATTERN = Pattern.compile("&X&([0-9A-Fa-f])&([0-9A-Fa-f])&([0-9A-Fa-f])&([0-9A-Fa-f])&([0-9A-Fa-f])&([0-9A-Fa-f])");
+    // Reset before every parse, so a thread allocates only the text it returns
+    private static final ThreadLocal<StyledTextBuilder> BUILDERS = ThreadLocal.withInitial(StyledTextBuilder::new);
+    
+    // Chat repeats itself a lot (broadcasts, join messages, spam waves), so parsed lines are shared
+    private final ParseCache parseCache = new ParseCache(1024, 256 * 1024, 4096);
+    private final IncomingMessagePipeline incomingMessagePipeline = new IncomingMessagePipeline(this);
     
     private ChatColorHandler() {
-        registerMessageHandlers();
+        // Private constructor for singleton
+    }
+    
+    // Created on first use; class initialization publishes it safely to every thread
+    private static final class Holder {
+        private static final ChatColorHandler INSTANCE = new ChatColorHandler();
     }
     
     public static ChatColorHandler getInstance() {
-        if (instance == null) {
-            instance = new ChatColorHandler();
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+    
+    public void initialize() {
+        registerMessageHandlers();
     }
     
     private void registerMessageHandlers() {
@@ -40,9 +60,22 @@ public class ChatColorHandler {
             LOGGER.debug("Outgoing message: {}", message);
         });
         
-        // Note: In Minecraft 1.20.1, incoming chat message events are consumers, not functions
-        // They don't allow modifying the message directly
-        // We'll use a different approach for handling incoming messages (e.g., Mixins)
+        // Servers that strip hex colors get them, and gradients, as the nearest legacy codes
+        ClientSendMessageEvents.MODIFY_CHAT.register(this::convertOutgoingMessage);
+        
+        // Incoming chat and game messages are colorized on a worker thread
+        incomingMessagePipeline.register();
+    }
+    
+    private String convertOutgoingMessage(String message) {
+        int flags = currentFlags();
+        if ((flags & ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY) == 0
+                || ColorCodeLexer.indexOfCode(message, 0, message.length(), flags) < 0) {
+            return message;
+        }
+        String converted = CodeEncoder.transcode(message, flags, CodeEncoder.Format.LEGACY);
+        // The server rejects longer messages, so one that no longer fits is sent as typed
+        return converted.length() <= MAX_CHAT_LENGTH ? converted : message;
     }
     
     private void handleOutgoingMessage(String message) {
@@ -52,17 +85,87 @@ public class ChatColorHandler {
     }
     
     public MutableText processHexColors(Text text) {
-        // Convert the text to string for regex processing
-        String rawText = text.getString();
-        
-        // Process segmented hex colors first (&X&R&R&G&G&B&B)
-        rawText = processSegmentedHexColors(rawText);
+        // Copy the shared cached result so callers are free to restyle their own instance
+        return copyOf(colorize(rawString(text)));
+    }
+    
+    // Copies every node; Text.copy() would hand out the cached siblings themselves
+    static MutableText copyOf(Text text) {
+        MutableText copy = MutableText.of(text.getContent()).setStyle(text.getStyle());
+        List<Text> siblings = text.getSiblings();
+        for (int i = 0; i < siblings.size(); i++) {
+            copy.append(copyOf(siblings.get(i)));
+        }
+        return copy;
+    }
+    
+    // A lone literal already holds its string; getString() would build a fresh copy every call
+    private static String rawString(Text text) {
+        if (text.getContent() instanceof PlainTextContent.Literal literal && text.getSiblings().isEmpty()) {
+            return literal.string();
+        }
+        return text.getString();
+    }
+    
+    /**
+     * Parses a raw line into styled text. The returned instance is shared with other callers
+     * through the parse cache and must not be modified, nor handed out; use
+     * {@link #processHexColors(Text)} for a private copy.
+     */
+    public Text colorize(String rawText) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
         
-        // Process standard hex colors (#RRGGBB)
-        rawText = processStandardHexColors(rawText);
+        int flags = currentFlags();
+        ParseCache.Entry cached = parseCache.get(rawText, flags);
+        if (cached != null) {
+            PipelineMetrics.recordParse(rawText.length(), 0, true);
+            event.finish(rawText.length(), cached.codes(), cached.styleRuns(), true);
+            return cached.text();
+        }
         
-        // Reconstruct the text with formatting
-        return parseFormattedText(rawText);
+        StyledTextBuilder builder = scratchBuilder(flags);
+        MutableText parsed = lex(rawText, flags, builder);
+        parseCache.put(rawText, flags, parsed, builder.getCodeCount(), builder.getRunCount());
+        PipelineMetrics.recordParse(rawText.length(), System.nanoTime() - startedAt, false);
+        event.finish(rawText.length(), builder.getCodeCount(), builder.getRunCount(), false);
+        return parsed;
+    }
+    
+    /**
+     * Parses a raw line with the given lexer flags, bypassing the parse cache. For previews of
+     * settings that are not in effect yet, which would otherwise flush the cache.
+     */
+    public MutableText parse(String rawText, int flags) {
+        return lex(rawText, flags, scratchBuilder(flags));
+    }
+    
+    // Like parse(), with what parsing found; for metrics, so nothing is cached or counted
+    ParseCache.Entry parseEntry(String rawText, int flags) {
+        StyledTextBuilder builder = scratchBuilder(flags);
+        MutableText parsed = lex(rawText, flags, builder);
+        return new ParseCache.Entry(parsed, builder.getCodeCount(), builder.getRunCount());
+    }
+    
+    private static StyledTextBuilder scratchBuilder(int flags) {
+        StyledTextBuilder builder = BUILDERS.get();
+        builder.reset((flags & ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY) != 0);
+        return builder;
+    }
+    
+    private static MutableText lex(String rawText, int flags, StyledTextBuilder builder) {
+        // Lex the raw text once, emitting one styled sibling per style run
+        ColorCodeLexer.lex(rawText, 0, rawText.length(), flags, builder.tracker());
+        return builder.build();
+    }
+    
+    /**
+     * Colorizes the codes inside the literal parts of text while keeping its structure, styles,
+     * click/hover events and translatable parts. Returns text itself when it contains no codes.
+     */
+    public Text processStyledText(Text text) {
+        return StyledTextRewriter.rewrite(this, text, currentFlags());
     }
     
     // Overload for MutableText
@@ -70,112 +173,71 @@ public class ChatColorHandler {
         return processHexColors((Text) text);
     }
     
-    private String processSegmentedHexColors(String text) {
-        Matcher matcher = SEGMENTED_HEX_PATTERN.matcher(text);
-        StringBuilder result = new StringBuilder();
-        int lastIndex = 0;
-        
-        while (matcher.find()) {
-            result.append(text, lastIndex, matcher.start());
-            
-            // Extract the hex digits
-            String r1 = matcher.group(1);
-            String r2 = matcher.group(2);
-            String g1 = matcher.group(3);
-            String g2 = matcher.group(4);
-            String b1 = matcher.group(5);
-            String b2 = matcher.group(6);
-            
-            // Combine into a standard hex color
-            String hexColor = "#" + r1 + r2 + g1 + g2 + b1 + b2;
-            result.append(hexColor);
-            
-            lastIndex = matcher.end();
-        }
-        
-        result.append(text.substring(lastIndex));
-        return result.toString();
+    // Utility method to preview color formatting
+    public String previewHexColors(String text) {
+        // Rewrite segmented hex colors (&X&R&R&G&G&B&B) to the standard #RRGGBB form
+        return ColorCodeLexer.rewriteSegmentedHex(text);
     }
     
-    private String processStandardHexColors(String text) {
-        // This method processes #RRGGBB colors and converts them to Minecraft formatting
-        // We'll handle the actual formatting in parseFormattedText
-        return text;
+    /**
+     * Shortest code string in {@code format} that restyles like {@code text}, e.g. to send a
+     * styled text as a chat message. Only color and the five formattings are kept.
+     */
+    public static String encode(Text text, CodeEncoder.Format format) {
+        CodeEncoder encoder = new CodeEncoder(format);
+        text.visit((style, string) -> {
+            encoder.run(StyleTable.state(style), string, 0, string.length());
+            return Optional.empty();
+        }, Style.EMPTY);
+        return encoder.toString();
     }
     
-    private MutableText parseFormattedText(String text) {
-        MutableText result = Text.empty();
-        List<Formatting> activeFormattings = new ArrayList<>();
-        
-        int i = 0;
-        while (i < text.length()) {
-            char c = text.charAt(i);
-            
-            if (c == '#' && i + 6 < text.length()) {
-                // Check if this is a hex color
-                String hex = text.substring(i, i + 7);
-                if (HEX_COLOR_PATTERN.matcher(hex).matches()) {
-                    // Apply the hex color
-                    Color color = Color.decode(hex);
-                    int rgb = color.getRGB();
-                    Style style = Style.EMPTY.withColor(rgb);
-                    
-                    // Add active formattings to the style
-                    for (Formatting formatting : activeFormattings) {
-                        style = style.withFormatting(formatting);
-                    }
-                    
-                    result.setStyle(style);
-                    i += 7;
-                    continue;
-                }
-            }
-            
-            if (c == '&' && i + 1 < text.length()) {
-                // Handle Minecraft color codes
-                char colorCode = text.charAt(i + 1);
-                Formatting formatting = Formatting.byCode(colorCode);
-                
-                if (formatting != null) {
-                    if (formatting.isColor()) {
-                        // Clear all active formattings if it's a color
-                        activeFormattings.clear();
-                        Style style = Style.EMPTY.withFormatting(formatting);
-                        result.setStyle(style);
-                    } else if (formatting == Formatting.RESET) {
-                        // Reset all formattings
-                        activeFormattings.clear();
-                        result.setStyle(Style.EMPTY);
-                    } else {
-                        // Add formatting to active list
-                        if (!activeFormattings.contains(formatting)) {
-                            activeFormattings.add(formatting);
-                            Style style = result.getStyle();
-                            for (Formatting fmt : activeFormattings) {
-                                style = style.withFormatting(fmt);
-                            }
-                            result.setStyle(style);
-                        }
-                    }
-                    i += 2;
-                    continue;
-                }
-            }
-            
-            // Add the character as-is with current style
-            result.append(Text.literal(String.valueOf(c)).setStyle(result.getStyle()));
-            i++;
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
+    
+    public IncomingMessagePipeline getIncomingMessagePipeline() {
+        return incomingMessagePipeline;
+    }
+    
+    // Lexer flags for the syntaxes currently enabled in the config
+    static int currentFlags() {
+        ConfigManager configManager = ColorCodesMod.configManager;
+        if (configManager == null) {
+            return ColorCodeLexer.ALL_FLAGS;
         }
         
-        return result;
+        return flagsOf(configManager.getConfig());
     }
     
-    // Utility method to preview color formatting
-    public String previewHexColors(String text) {
-        // Process the text and return the formatted version
-        String processedText = processSegmentedHexColors(text);
-        processedText = processStandardHexColors(processedText);
-        return processedText;
+    // Lexer flags for the syntaxes enabled in config
+    public static int flagsOf(ConfigManager.Config config) {
+        int flags = 0;
+        if (config.enableHexColor) {
+            flags |= ColorCodeLexer.FLAG_HEX;
+        }
+        if (config.enableSegmentedHexColor) {
+            flags |= ColorCodeLexer.FLAG_SEGMENTED_HEX;
+        }
+        if (config.enableGradients) {
+            flags |= ColorCodeLexer.FLAG_GRADIENT;
+        }
+        if (config.enableAmpersandHexColor) {
+            flags |= ColorCodeLexer.FLAG_AMPERSAND_HEX;
+        }
+        if (config.enableHexTags) {
+            flags |= ColorCodeLexer.FLAG_HEX_TAG;
+        }
+        if (config.enableNamedTags) {
+            flags |= ColorCodeLexer.FLAG_NAMED_TAGS;
+        }
+        if (config.enableSectionSign) {
+            flags |= ColorCodeLexer.FLAG_SECTION_SIGN;
+        }
+        if (config.legacyColorsOnly) {
+            flags |= ColorCodeLexer.FLAG_LEGACY_COLORS_ONLY;
+        }
+        return flags;
     }
     
     // Method to convert hex string to Color object
@@ -190,6 +252,6 @@ public class ChatColorHandler {
     
     // Method to validate hex color strings
     public static boolean isValidHexColor(String hex) {
-        return HEX_COLOR_PATTERN.matcher(hex).matches();
+        return ColorCodeLexer.isHexColor(hex);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.IncrementalStyleRuns;
+import net.minecraft.text.OrderedText;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Live color highlighting for the chat input field. The style runs of the input are kept by
+ * {@link IncrementalStyleRuns}, so each edit only re-lexes the damaged region; rendering then
+ * just slices the visible part of the field into styled pieces.
+ */
+public class ChatInputHighlighter {
+    private final IncrementalStyleRuns runs = new IncrementalStyleRuns();
+
+    // Last formatted slice, reused while neither the text nor the scroll position change
+    private String lastVisible;
+    private int lastFirstCharacter = -1;
+    private OrderedText lastFormatted;
+
+    /**
+     * Formats {@code visible}, the part of {@code fullText} shown in the field starting at
+     * {@code firstCharacterIndex}. Returns null if the two don't line up.
+     */
+    public OrderedText format(String fullText, String visible, int firstCharacterIndex) {
+        if (runs.update(fullText, ChatColorHandler.currentFlags())) {
+            lastFormatted = null;
+        }
+
+        int end = firstCharacterIndex + visible.length();
+        if (end > fullText.length()) {
+            return null;
+        }
+        if (lastFormatted != null && firstCharacterIndex == lastFirstCharacter && visible.equals(lastVisible)) {
+            return lastFormatted;
+        }
+
+        List<OrderedText> parts = new ArrayList<>();
+        int token = runs.tokenAt(firstCharacterIndex);
+        int position = firstCharacterIndex;
+        while (position < end) {
+            int next = token + 1 < runs.size() ? Math.min(end, runs.tokenStart(token + 1)) : end;
+            String part = visible.substring(position - firstCharacterIndex, next - firstCharacterIndex);
+            parts.add(OrderedText.styledForwardsVisitedString(part, StyleTable.style(runs.stateAfter(token))));
+            position = next;
+            token++;
+        }
+
+        lastVisible = visible;
+        lastFirstCharacter = firstCharacterIndex;
+        lastFormatted = parts.size() == 1 ? parts.get(0) : OrderedText.concat(parts);
+        return lastFormatted;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.ColorCodesMod;
+import com.example.colorcodesmod.config.ConfigManager;
+import com.example.colorcodesmod.config.ServerConfig;
+import com.example.colorcodesmod.metrics.BackgroundJobEvent;
+import com.example.colorcodesmod.metrics.PipelineMetrics;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.WorldRenderEvents;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.hud.MessageIndicator;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.network.message.MessageSignatureData;
+import net.minecraft.text.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colorizes incoming chat and game messages off the render thread.
+ * <p>
+ * Messages are caught where vanilla adds them to the chat HUD (see {@code ChatHudMixin}), inside
+ * its own message handling: blocked and hidden senders, the only-secure-chat option and fully
+ * filtered messages are dealt with before, and the chat log used for abuse reports and
+ * narration still get every message as without this mod. Only what the HUD shows changes.
+ * <p>
+ * Messages containing codes are held back from the HUD, parsed on a worker thread and added in
+ * arrival order, a few per frame. Plain messages pass straight through unless they would
+ * overtake a message still being parsed. When the queue is full the pipeline stops holding
+ * messages back and they are shown unprocessed, so a chat flood can never make the render
+ * thread wait on parsing.
+ * <p>
+ * A held-back message keeps the signature and indicator vanilla added it with, so it keeps its
+ * indicator and can still be deleted by signature, even while it is queued.
+ */
+public class IncomingMessagePipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger("colorcodesmod");
+
+    private static final int MAX_PENDING = 256;
+    private static final int MESSAGES_PER_FRAME = 8;
+    private static final String WORKER_NAME = "colorcodesmod-incoming-messages";
+
+    private final ChatColorHandler handler;
+    private final ExecutorService worker;
+    // Messages held back from the chat HUD, in arrival order; only touched on the render thread
+    private final ArrayDeque<PendingMessage> pending = new ArrayDeque<>();
+    // Set while drain() adds messages, which come back through offer()
+    private boolean draining;
+
+    public IncomingMessagePipeline(ChatColorHandler handler) {
+        this.handler = handler;
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING),
+            runnable -> {
+                Thread thread = new Thread(runnable, WORKER_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public void register() {
+        // World rendering runs once per frame, whether or not the HUD is hidden
+        WorldRenderEvents.END.register(context -> drain());
+        ClientPlayConnectionEvents.DISCONNECT.register((networkHandler, client) -> client.execute(pending::clear));
+    }
+
+    /**
+     * Called for every message vanilla adds to the chat HUD. Returns true to let it be added as
+     * is, false when the pipeline has taken it and adds it later.
+     */
+    public boolean offer(Text message, MessageSignatureData signature, MessageIndicator indicator) {
+        // Messages the pipeline adds itself, and ones added from other threads, go straight in
+        if (draining || !isActive() || !MinecraftClient.getInstance().isOnThread()) {
+            return true;
+        }
+
+        boolean hasCodes = StyledTextRewriter.containsCode(message, ChatColorHandler.currentFlags());
+        if (!hasCodes && pending.isEmpty()) {
+            return true;
+        }
+        if (pending.size() >= MAX_PENDING) {
+            // Back-pressure: show it unprocessed rather than queue without bound
+            PipelineMetrics.jobDropped();
+            return true;
+        }
+
+        PendingMessage entry = new PendingMessage(signature, indicator);
+        if (!hasCodes) {
+            // Keep it behind the messages still being parsed
+            entry.result = message;
+        } else {
+            long submittedAt = System.nanoTime();
+            try {
+                worker.execute(() -> entry.result = colorize(message, submittedAt));
+            } catch (RejectedExecutionException e) {
+                PipelineMetrics.jobDropped();
+                return true;
+            }
+        }
+        pending.add(entry);
+        return false;
+    }
+
+    // A message deleted by the server before it was shown is never shown
+    public void discard(MessageSignatureData signature) {
+        pending.removeIf(entry -> signature.equals(entry.signature));
+    }
+
+    private Text colorize(Text original, long submittedAt) {
+        PipelineMetrics.jobStarted();
+        BackgroundJobEvent event = new BackgroundJobEvent();
+        event.begin();
+        long queueDelay = System.nanoTime() - submittedAt;
+        try {
+            // Keep the server's own styling, click and hover events
+            return handler.processStyledText(original);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to colorize incoming message: {}", e.getMessage());
+            return original;
+        } finally {
+            if (event.isEnabled()) {
+                event.finish(WORKER_NAME, original.getString().length(), queueDelay, false);
+            }
+        }
+    }
+
+    // Hands finished messages to the chat HUD, at most MESSAGES_PER_FRAME per frame
+    private void drain() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (pending.isEmpty() || client.inGameHud == null) {
+            return;
+        }
+
+        draining = true;
+        try {
+            for (int budget = MESSAGES_PER_FRAME; budget > 0; budget--) {
+                PendingMessage head = pending.peek();
+                if (head == null || head.result == null) {
+                    break;
+                }
+                pending.poll();
+                client.inGameHud.getChatHud().addMessage(head.result, head.signature, head.indicator);
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private static boolean isActive() {
+        ConfigManager configManager = ColorCodesMod.configManager;
+        ServerConfig serverConfig = ColorCodesMod.serverConfig;
+        if (configManager == null || serverConfig == null || !configManager.getConfig().enabled) {
+            return false;
+        }
+
+        ServerInfo server = MinecraftClient.getInstance().getCurrentServerEntry();
+        return serverConfig.isEnabledOnServer(server != null ? server.address : null);
+    }
+
+    private static class PendingMessage {
+        // Null for messages without a signature, such as game messages
+        private final MessageSignatureData signature;
+        private final MessageIndicator indicator;
+        // Written by the worker, read by the render thread; null until parsed
+        private volatile Text result;
+
+        private PendingMessage(MessageSignatureData signature, MessageIndicator indicator) {
+            this.signature = signature;
+            this.indicator = indicator;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.metrics.BackgroundJobEvent;
+import com.example.colorcodesmod.metrics.PipelineMetrics;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Single reusable daemon worker that only ever processes the newest input.
+ * <p>
+ * Every {@link #submit} restarts a trailing-edge debounce timer and cancels the job that was
+ * still waiting, so a burst of inputs collapses into one run on the last value. A job that is
+ * already running when newer input arrives finishes, but its result is dropped as stale.
+ */
+public class LatestWinsWorker<T, R> {
+    private final String name;
+    private final ScheduledExecutorService executor;
+    private final Function<T, R> task;
+    private final long debounceMillis;
+
+    // Bumped on every submit; a job only delivers if it is still the latest generation
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    public LatestWinsWorker(String threadName, long debounceMillis, Function<T, R> task) {
+        this.name = threadName;
+        this.task = task;
+        this.debounceMillis = debounceMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void submit(T input, Consumer<R> callback) {
+        long job = generation.incrementAndGet();
+        long submittedAt = System.nanoTime();
+        if (pending != null && pending.cancel(false)) {
+            PipelineMetrics.jobCoalesced();
+        }
+
+        pending = executor.schedule(() -> {
+            if (generation.get() != job) {
+                // Superseded just as it was about to run
+                PipelineMetrics.jobCoalesced();
+                return;
+            }
+            PipelineMetrics.jobStarted();
+            BackgroundJobEvent event = new BackgroundJobEvent();
+            event.begin();
+            long queueDelay = System.nanoTime() - submittedAt;
+
+            R result = task.apply(input);
+            boolean stale = generation.get() != job;
+            event.finish(name, input instanceof CharSequence text ? text.length() : 0, queueDelay, stale);
+            if (stale) {
+                PipelineMetrics.jobDropped();
+            } else {
+                callback.accept(result);
+            }
+        }, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Drops any queued or in-flight result
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.colorcodesmod.handler;
+
+import net.minecraft.text.Text;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of parsed chat lines keyed by the raw message text.
+ * <p>
+ * Entries are bounded both by count and by the total number of cached characters, which is
+ * what the retained text trees scale with. Every lookup carries the lexer flags it was parsed
+ * with; when they differ from the flags the cache was filled under, the cache clears itself,
+ * so toggling a syntax in the config never serves a stale result.
+ */
+public class ParseCache {
+    private final int maxEntries;
+    private final long maxChars;
+    // Lines longer than this are parsed every time rather than pushing out many short ones
+    private final int maxLineLength;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedChars;
+    private int flags = -1;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ParseCache(int maxEntries, long maxChars, int maxLineLength) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+        this.maxLineLength = maxLineLength;
+    }
+
+    // A parsed line and what parsing it found, so a hit can report it without parsing again
+    public record Entry(Text text, int codes, int styleRuns) {
+    }
+
+    public synchronized Entry get(String rawText, int flags) {
+        if (this.flags != flags) {
+            clear();
+            this.flags = flags;
+        }
+
+        Entry cached = entries.get(rawText);
+        if (cached != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return cached;
+    }
+
+    // Like get(), but for metrics: doesn't count as a hit or miss, nor clear the cache
+    public synchronized Entry peek(String rawText, int flags) {
+        return this.flags == flags ? entries.get(rawText) : null;
+    }
+
+    public synchronized void put(String rawText, int flags, Text parsed, int codes, int styleRuns) {
+        if (this.flags != flags || rawText.length() > maxLineLength) {
+            return;
+        }
+
+        Entry previous = entries.put(rawText, new Entry(parsed, codes, styleRuns));
+        if (previous == null) {
+            cachedChars += rawText.length();
+        }
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedChars > maxChars) && eldest.hasNext()) {
+            cachedChars -= eldest.next().getKey().length();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized void invalidate() {
+        clear();
+        flags = -1;
+    }
+
+    private void clear() {
+        entries.clear();
+        cachedChars = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import com.example.colorcodesmod.core.StyleState;
+import net.minecraft.text.Style;
+import net.minecraft.text.TextColor;
+import net.minecraft.util.Formatting;
+
+/**
+ * Interned {@link Style} instances keyed by color and a {@link StyleState} formatting bitmask.
+ * <p>
+ * Styles for "no color", the 16 legacy colors and every bold/italic/underline/strikethrough/
+ * obfuscated combination are built once up front. Hex color styles go through a fixed-size,
+ * direct-mapped table that is safe to share between threads: a slot holds an immutable entry
+ * and a collision simply replaces it, so the table never grows. Either way a style transition
+ * is a lookup rather than a chain of {@code with*} calls.
+ */
+public final class StyleTable {
+    private static final int NO_COLOR = StyleState.NO_COLOR;
+    private static final int FORMATTING_COMBINATIONS = StyleState.FORMATTING_COMBINATIONS;
+
+    private static final int HEX_SLOT_BITS = 12;
+    private static final int HEX_SLOTS = 1 << HEX_SLOT_BITS;
+
+    private static final Formatting[] LEGACY_COLORS = new Formatting[16];
+    private static final Style[] LEGACY_STYLES = new Style[(NO_COLOR + 1) * FORMATTING_COMBINATIONS];
+    private static final HexEntry[] HEX_STYLES = new HexEntry[HEX_SLOTS];
+
+    static {
+        for (Formatting formatting : Formatting.values()) {
+            if (formatting.isColor()) {
+                LEGACY_COLORS[ColorCodeLexer.hexValue(formatting.getCode())] = formatting;
+            }
+        }
+
+        for (int color = 0; color <= NO_COLOR; color++) {
+            Style base = color == NO_COLOR ? Style.EMPTY : Style.EMPTY.withFormatting(LEGACY_COLORS[color]);
+            for (int formatting = 0; formatting < FORMATTING_COMBINATIONS; formatting++) {
+                LEGACY_STYLES[color * FORMATTING_COMBINATIONS + formatting] = withFormatting(base, formatting);
+            }
+        }
+    }
+
+    private StyleTable() {
+    }
+
+    // Style for a packed StyleState
+    public static Style style(int state) {
+        int formatting = StyleState.formatting(state);
+        if (StyleState.isRgb(state)) {
+            return hex(StyleState.color(state), formatting);
+        }
+        return legacy(StyleState.color(state), formatting);
+    }
+
+    // Style for a legacy color index (0-15, or NO_COLOR) plus formatting bits
+    public static Style legacy(int color, int formatting) {
+        return LEGACY_STYLES[color * FORMATTING_COMBINATIONS + formatting];
+    }
+
+    // Style for a 0xRRGGBB color plus formatting bits
+    public static Style hex(int rgb, int formatting) {
+        int key = (rgb << 5) | formatting;
+        int slot = (key * 0x9E3779B1) >>> (32 - HEX_SLOT_BITS);
+
+        HexEntry entry = HEX_STYLES[slot];
+        if (entry != null && entry.key == key) {
+            return entry.style;
+        }
+
+        Style style = withFormatting(Style.EMPTY.withColor(rgb), formatting);
+        // Entries are immutable, so a racy write is harmless: a reader sees either entry
+        HEX_STYLES[slot] = new HexEntry(key, style);
+        return style;
+    }
+
+    // Packed StyleState of a style's color and formattings; other attributes are dropped
+    public static int state(Style style) {
+        int formatting = 0;
+        if (style.isBold()) {
+            formatting |= StyleState.BOLD;
+        }
+        if (style.isItalic()) {
+            formatting |= StyleState.ITALIC;
+        }
+        if (style.isUnderlined()) {
+            formatting |= StyleState.UNDERLINE;
+        }
+        if (style.isStrikethrough()) {
+            formatting |= StyleState.STRIKETHROUGH;
+        }
+        if (style.isObfuscated()) {
+            formatting |= StyleState.OBFUSCATED;
+        }
+        TextColor color = style.getColor();
+        return color != null ? StyleState.ofRgb(color.getRgb(), formatting) : StyleState.ofLegacy(NO_COLOR, formatting);
+    }
+
+    public static Formatting legacyColor(int color) {
+        return LEGACY_COLORS[color];
+    }
+
+    private static Style withFormatting(Style style, int formatting) {
+        if ((formatting & StyleState.BOLD) != 0) {
+            style = style.withBold(true);
+        }
+        if ((formatting & StyleState.ITALIC) != 0) {
+            style = style.withItalic(true);
+        }
+        if ((formatting & StyleState.UNDERLINE) != 0) {
+            style = style.withUnderline(true);
+        }
+        if ((formatting & StyleState.STRIKETHROUGH) != 0) {
+            style = style.withStrikethrough(true);
+        }
+        if ((formatting & StyleState.OBFUSCATED) != 0) {
+            style = style.withObfuscated(true);
+        }
+        return style;
+    }
+
+    private record HexEntry(int key, Style style) {
+    }
+}
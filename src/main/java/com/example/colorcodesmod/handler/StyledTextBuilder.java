@@ -0,0 +1,118 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.StyleSink;
+import com.example.colorcodesmod.core.StyleState;
+import com.example.colorcodesmod.core.StyleTracker;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+
+/**
+ * Builds a {@link MutableText} from style runs, emitting one literal per maximal run of
+ * identical style. Characters are collected until the style actually changes, so redundant
+ * codes (e.g. {@code &c&c} or {@code &l&l}) and code-split spans do not create extra siblings.
+ * <p>
+ * Lexer tokens go to {@link #tracker()}, which follows the style and feeds the runs back in;
+ * with {@code legacyColorsOnly} set, it replaces hex colors by the nearest legacy color.
+ * <p>
+ * An instance is not thread-safe, but it can be {@link #reset(boolean) reset} and reused for
+ * the next line once {@link #build()} has returned.
+ */
+public class StyledTextBuilder implements StyleSink {
+    // A reused builder gives up run buffers that grew past this rather than keep them forever
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+
+    private final StyleTracker tracker;
+    private StringBuilder run = new StringBuilder();
+    private int state = StyleState.DEFAULT;
+    private Style style = Style.EMPTY;
+    private Style runStyle = Style.EMPTY;
+
+    private MutableText result;
+    private MutableText firstRun;
+    private int runCount;
+
+    public StyledTextBuilder() {
+        this(false);
+    }
+
+    public StyledTextBuilder(boolean legacyColorsOnly) {
+        this.tracker = new StyleTracker(this, legacyColorsOnly);
+    }
+
+    // Where the lexer's tokens go
+    public StyleTracker tracker() {
+        return tracker;
+    }
+
+    @Override
+    public void run(int newState, CharSequence source, int start, int end) {
+        if (newState != state) {
+            state = newState;
+            style = StyleTable.style(newState);
+        }
+        if (run.length() > 0 && !runStyle.equals(style)) {
+            flushRun();
+        }
+        if (run.length() == 0) {
+            runStyle = style;
+        }
+        run.append(source, start, end);
+    }
+
+    /**
+     * Finishes the text. A single run is returned as a bare styled literal; several runs are
+     * returned as siblings of an unstyled empty root so they don't inherit from each other.
+     */
+    public MutableText build() {
+        if (run.length() > 0) {
+            flushRun();
+        }
+        if (result != null) {
+            return result;
+        }
+        return firstRun != null ? firstRun : Text.empty();
+    }
+
+    // Forgets the previous line, so the builder can start on the next one
+    public void reset(boolean legacyColorsOnly) {
+        tracker.reset(legacyColorsOnly);
+        if (run.capacity() > MAX_RETAINED_CAPACITY) {
+            run = new StringBuilder();
+        } else {
+            run.setLength(0);
+        }
+        state = StyleState.DEFAULT;
+        style = Style.EMPTY;
+        runStyle = Style.EMPTY;
+        result = null;
+        firstRun = null;
+        runCount = 0;
+    }
+
+    // Codes reported by the lexer so far
+    public int getCodeCount() {
+        return tracker.getCodeCount();
+    }
+    
+    // Styled literals emitted so far
+    public int getRunCount() {
+        return runCount;
+    }
+
+    private void flushRun() {
+        MutableText literal = Text.literal(run.toString()).setStyle(runStyle);
+        run.setLength(0);
+        runCount++;
+
+        if (firstRun == null) {
+            firstRun = literal;
+        } else {
+            if (result == null) {
+                result = Text.empty();
+                result.append(firstRun);
+            }
+            result.append(literal);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.PlainTextContent;
+import net.minecraft.text.Text;
+import net.minecraft.text.TextContent;
+import net.minecraft.text.TranslatableTextContent;
+
+import java.util.List;
+
+/**
+ * Colorizes a {@link Text} without flattening it.
+ * <p>
+ * Only literal segments that actually contain codes are rewritten; their new style runs are
+ * attached under the original node, so they inherit its style (click and hover events,
+ * insertion, font) and only override what the codes set. The arguments of translatable content
+ * are rewritten the same way, since that is where vanilla puts the message of a chat line
+ * ({@code chat.type.text}); the translation itself, other content and every untouched branch of
+ * the tree are reused as is. When nothing matches, the input instance itself is returned, and
+ * finding that out is a walk over the tree that allocates nothing.
+ */
+final class StyledTextRewriter {
+    private StyledTextRewriter() {
+    }
+
+    // True when a literal part of the text contains a code, i.e. exactly when rewrite() changes it
+    static boolean containsCode(Text text, int flags) {
+        TextContent content = text.getContent();
+        if (content instanceof PlainTextContent plain) {
+            if (hasCode(plain.string(), flags)) {
+                return true;
+            }
+        } else if (content instanceof TranslatableTextContent translatable) {
+            for (Object arg : translatable.getArgs()) {
+                if (arg instanceof Text argText ? containsCode(argText, flags) : arg instanceof String string && hasCode(string, flags)) {
+                    return true;
+                }
+            }
+        }
+
+        List<Text> siblings = text.getSiblings();
+        for (int i = 0; i < siblings.size(); i++) {
+            if (containsCode(siblings.get(i), flags)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static Text rewrite(ChatColorHandler handler, Text text, int flags) {
+        if (!containsCode(text, flags)) {
+            return text;
+        }
+        return rewriteNode(handler, text, flags);
+    }
+
+    private static Text rewriteNode(ChatColorHandler handler, Text node, int flags) {
+        TextContent content = node.getContent();
+        TextContent rewrittenContent = content;
+        Text colorizedContent = null;
+        if (content instanceof PlainTextContent plain) {
+            String string = plain.string();
+            if (hasCode(string, flags)) {
+                // The literal is replaced by its style runs as the first children
+                colorizedContent = ChatColorHandler.copyOf(handler.colorize(string));
+                rewrittenContent = PlainTextContent.EMPTY;
+            }
+        } else if (content instanceof TranslatableTextContent translatable) {
+            Object[] args = rewriteArgs(handler, translatable.getArgs(), flags);
+            if (args != null) {
+                rewrittenContent = new TranslatableTextContent(translatable.getKey(), translatable.getFallback(), args);
+            }
+        }
+
+        List<Text> siblings = node.getSiblings();
+        Text[] rewrittenSiblings = null;
+        for (int i = 0; i < siblings.size(); i++) {
+            Text sibling = siblings.get(i);
+            Text rewritten = rewriteNode(handler, sibling, flags);
+            if (rewritten != sibling) {
+                if (rewrittenSiblings == null) {
+                    rewrittenSiblings = siblings.toArray(new Text[0]);
+                }
+                rewrittenSiblings[i] = rewritten;
+            }
+        }
+
+        if (rewrittenContent == content && rewrittenSiblings == null) {
+            return node;
+        }
+
+        MutableText copy = MutableText.of(rewrittenContent).setStyle(node.getStyle());
+        if (colorizedContent != null) {
+            copy.append(colorizedContent);
+        }
+        if (rewrittenSiblings != null) {
+            for (Text sibling : rewrittenSiblings) {
+                copy.append(sibling);
+            }
+        } else {
+            for (Text sibling : siblings) {
+                copy.append(sibling);
+            }
+        }
+        return copy;
+    }
+
+    // Translatable arguments with their codes colorized, or null when none of them has codes
+    private static Object[] rewriteArgs(ChatColorHandler handler, Object[] args, int flags) {
+        Object[] rewritten = null;
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            Object replacement = arg;
+            if (arg instanceof Text text) {
+                replacement = rewriteNode(handler, text, flags);
+            } else if (arg instanceof String string && hasCode(string, flags)) {
+                replacement = ChatColorHandler.copyOf(handler.colorize(string));
+            }
+
+            if (replacement != arg) {
+                if (rewritten == null) {
+                    rewritten = args.clone();
+                }
+                rewritten[i] = replacement;
+            }
+        }
+        return rewritten;
+    }
+
+    private static boolean hasCode(String string, int flags) {
+        return ColorCodeLexer.indexOfCode(string, 0, string.length(), flags) >= 0;
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.colorcodesmod.handler;
 
+import com.example.colorcodesmod.ColorCodesMod;
+import com.example.colorcodesmod.config.ConfigManager;
+import com.example.colorcodesmod.metrics.PipelineMetrics;
+import com.example.colorcodesmod.metrics.TextProcessEvent;
+import com.example.colorcodesmod.mixin.ChatScreenAccessor;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.screen.v1.ScreenEvents;
 import net.fabricmc.fabric.api.client.screen.v1.Screens;
@@ -18,22 +23,31 @@ import java.util.function.Consumer;
 public class TextProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger("colorcodesmod");
     
-    private static TextProcessor instance;
-    
-    private boolean isEnabled = true;
+    // Read by the formatter, the worker thread and the key handler
+    private volatile boolean isEnabled = true;
     private KeyBinding toggleKeyBinding;
-    private long lastProcessTime = 0;
-    private static final long PROCESS_DELAY = 50; // 50ms delay between processing to prevent lag
+    private static final long PROCESS_DELAY = 50; // 50ms trailing debounce so fast typing coalesces into one job
+    private static final long STATS_REFRESH_INTERVAL = 1000; // Overlay numbers change once a second, not every frame
+    
+    // Only touched from the render thread
+    private String[] statsLines = new String[0];
+    private long statsRefreshedAt;
+    
+    // One reusable worker for all chat input processing; only the newest text is processed
+    private final LatestWinsWorker<String, String> backgroundWorker =
+        new LatestWinsWorker<>("colorcodesmod-text-processor", PROCESS_DELAY, this::processText);
     
     private TextProcessor() {
         // Private constructor for singleton
     }
     
+    // Created on first use; class initialization publishes it safely to every thread
+    private static final class Holder {
+        private static final TextProcessor INSTANCE = new TextProcessor();
+    }
+    
     public static TextProcessor getInstance() {
-        if (instance == null) {
-            instance = new TextProcessor();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     public void initialize() {
@@ -55,51 +69,60 @@ public class TextProcessor {
         // Register screen events to handle chat input
         ScreenEvents.AFTER_INIT.register((client, screen, scaledWidth, scaledHeight) -> {
             if (screen instanceof ChatScreen) {
-                // In Minecraft 1.20.1, we need to access the chat input field differently
-                // This is a simplified approach that works for most cases
-                try {
-                    // Use reflection to get the chat input field (this is a fallback for older versions)
-                    java.lang.reflect.Field field = ChatScreen.class.getDeclaredField("chatField");
-                    field.setAccessible(true);
-                    TextFieldWidget chatInput = (TextFieldWidget) field.get(screen);
+                TextFieldWidget chatInput = ((ChatScreenAccessor) screen).colorcodesmod$getChatField();
+
+                if (chatInput != null) {
+                    // Store original message for comparison using AtomicReference to make it effectively final
+                    java.util.concurrent.atomic.AtomicReference<String> originalMessageRef = new java.util.concurrent.atomic.AtomicReference<>(chatInput.getText());
                     
-                    if (chatInput != null) {
-                        // Store original message for comparison using AtomicReference to make it effectively final
-                        java.util.concurrent.atomic.AtomicReference<String> originalMessageRef = new java.util.concurrent.atomic.AtomicReference<>(chatInput.getText());
-                        
-                        // Add text change listener for real-time processing
-                        chatInput.setChangedListener(text -> {
-                            // Only process if text has changed and enough time has passed
-                            long currentTime = System.currentTimeMillis();
-                            if (!text.equals(originalMessageRef.get()) && (currentTime - lastProcessTime > PROCESS_DELAY)) {
-                                lastProcessTime = currentTime;
-                                // Process text in background (non-blocking)
-                                processTextInBackground(text, processedText -> {
-                                    // Update input field with processed text if it's still the same original text
-                                    MinecraftClient.getInstance().execute(() -> {
-                                        if (chatInput != null && chatInput.getText().equals(text)) {
-                                            chatInput.setText(processedText);
-                                            chatInput.setCursor(chatInput.getText().length(), false);
-                                        }
-                                    });
+                    // Add text change listener for real-time processing
+                    chatInput.setChangedListener(text -> {
+                        // Only process if text has changed; the worker debounces and keeps the newest text
+                        if (!text.equals(originalMessageRef.get())) {
+                            // Process text in background (non-blocking)
+                            processTextInBackground(text, processedText -> {
+                                // Update input field with processed text if it's still the same original text
+                                MinecraftClient.getInstance().execute(() -> {
+                                    if (chatInput != null && chatInput.getText().equals(text)) {
+                                        chatInput.setText(processedText);
+                                        chatInput.setCursor(chatInput.getText().length(), false);
+                                    }
                                 });
-                            }
-                            originalMessageRef.set(text);
-                        });
-                    }
-                } catch (Exception e) {
-                    LOGGER.error("Failed to access chat input field: {}", e.getMessage());
+                            });
+                        }
+                        originalMessageRef.set(text);
+                    });
+                    
+                    // Color the input as it is typed; only the edited region is re-lexed
+                    ChatInputHighlighter highlighter = new ChatInputHighlighter();
+                    chatInput.addFormatter((visibleText, firstCharacterIndex) -> {
+                        String fullText = chatInput.getText();
+                        // Leave commands to the vanilla suggestion highlighter
+                        if (!isEnabled || fullText.startsWith("/")) {
+                            return null;
+                        }
+                        return highlighter.format(fullText, visibleText, firstCharacterIndex);
+                    });
+                    
+                    ScreenEvents.afterRender(screen).register((rendered, context, mouseX, mouseY, tickDelta) ->
+                        renderStatusIndicator(context, rendered, chatInput)
+                    );
+                    
+                    // Drop any pending job once the chat screen goes away
+                    ScreenEvents.remove(screen).register(removed -> backgroundWorker.cancel());
                 }
             }
         });
     }
     
+    // Stops the background worker; called once as the client shuts down
+    public void shutdown() {
+        backgroundWorker.shutdown();
+    }
+    
     private void processTextInBackground(String text, Consumer<String> callback) {
-        // Process text in a separate thread to avoid blocking the main thread
-        new Thread(() -> {
-            String processedText = processText(text);
-            callback.accept(processedText);
-        }).start();
+        // Hand the text to the shared worker; any older pending text is discarded
+        backgroundWorker.submit(text, callback);
     }
     
     public String processText(String text) {
@@ -107,6 +130,9 @@ public class TextProcessor {
             return text;
         }
         
+        TextProcessEvent event = new TextProcessEvent();
+        event.begin();
+        
         // Here we implement the actual text processing logic
         // For now, we'll use the existing hex color processing
         String processedText = text;
@@ -114,6 +140,14 @@ public class TextProcessor {
         // Process segmented hex colors (&X&R&R&G&G&B&B)
         processedText = ChatColorHandler.getInstance().previewHexColors(processedText);
         
+        if (event.finish()) {
+            // What the processed text parses into, from the parse cache when it holds the line
+            ChatColorHandler handler = ChatColorHandler.getInstance();
+            int flags = ChatColorHandler.currentFlags();
+            ParseCache.Entry cached = handler.getParseCache().peek(processedText, flags);
+            ParseCache.Entry parsed = cached != null ? cached : handler.parseEntry(processedText, flags);
+            event.commit(text.length(), processedText.length(), processedText != text, parsed.codes(), parsed.styleRuns(), cached != null);
+        }
         return processedText;
     }
     
@@ -136,9 +170,30 @@ public class TextProcessor {
             inputY - 15,
             color
         );
+        
+        ConfigManager configManager = ColorCodesMod.configManager;
+        if (configManager != null && configManager.getConfig().showStatsOverlay) {
+            renderStatsOverlay(context, inputX, inputY - 15);
+        }
+    }
+    
+    // Pipeline counters stacked above the status indicator, toggled with /colorcodes stats overlay
+    private void renderStatsOverlay(DrawContext context, int x, int bottomY) {
+        long now = net.minecraft.util.Util.getMeasuringTimeMs();
+        if (now - statsRefreshedAt >= STATS_REFRESH_INTERVAL) {
+            statsLines = PipelineMetrics.snapshot().lines();
+            statsRefreshedAt = now;
+        }
+        
+        net.minecraft.client.font.TextRenderer textRenderer = MinecraftClient.getInstance().textRenderer;
+        int y = bottomY - statsLines.length * (textRenderer.fontHeight + 1) - 2;
+        for (String line : statsLines) {
+            context.drawTextWithShadow(textRenderer, line, x, y, 0xFFAAAAAA);
+            y += textRenderer.fontHeight + 1;
+        }
     }
     
-    public void toggleEnabled() {
+    public synchronized void toggleEnabled() {
         isEnabled = !isEnabled;
         LOGGER.info("Text processing {}abled", isEnabled ? "en" : "dis");
     }
@@ -147,7 +202,7 @@ public class TextProcessor {
         return isEnabled;
     }
     
-    public void setEnabled(boolean enabled) {
+    public synchronized void setEnabled(boolean enabled) {
         isEnabled = enabled;
     }
     
@@ -0,0 +1,48 @@
+package com.example.colorcodesmod.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a job run on one of the mod's worker threads. The event duration is the run
+ * itself; the time the job spent waiting before it is recorded separately.
+ */
+@Name("colorcodesmod.BackgroundJob")
+@Label("Background Job")
+@Description("Text processing done on a worker thread")
+@Category({"Color Codes Mod", "Workers"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class BackgroundJobEvent extends Event {
+    @Label("Worker")
+    String worker;
+
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Queue Delay")
+    @Description("Time from submission to the start of the job, debounce included")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueDelay;
+
+    @Label("Stale")
+    @Description("A newer submission arrived while the job ran, so its result was dropped")
+    boolean stale;
+
+    public void finish(String worker, int inputLength, long queueDelayNanos, boolean stale) {
+        end();
+        if (shouldCommit()) {
+            this.worker = worker;
+            this.inputLength = inputLength;
+            this.queueDelay = queueDelayNanos;
+            this.stale = stale;
+            commit();
+        }
+    }
+}
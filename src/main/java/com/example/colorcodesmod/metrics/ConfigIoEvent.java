@@ -0,0 +1,39 @@
+package com.example.colorcodesmod.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for reading or writing one of the config files. Rare enough to record every time.
+ */
+@Name("colorcodesmod.ConfigIo")
+@Label("Config File I/O")
+@Description("Loading, reloading or saving a config file")
+@Category({"Color Codes Mod", "Config"})
+public class ConfigIoEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Characters")
+    long characters;
+
+    @Label("Success")
+    boolean success;
+
+    public void finish(String file, String operation, long characters, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.file = file;
+            this.operation = operation;
+            this.characters = characters;
+            this.success = success;
+            commit();
+        }
+    }
+}
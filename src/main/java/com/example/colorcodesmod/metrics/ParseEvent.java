@@ -0,0 +1,48 @@
+package com.example.colorcodesmod.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for colorizing one line of chat text, including parse cache hits.
+ * <p>
+ * Fields are only filled in when the event will actually be recorded, so without a recording
+ * (or below the threshold) an instance costs a begin/end timestamp pair.
+ */
+@Name("colorcodesmod.Parse")
+@Label("Color Code Parse")
+@Description("Colorizing a line of text with color codes")
+@Category({"Color Codes Mod", "Parsing"})
+@Threshold("100 us")
+@StackTrace(false)
+public class ParseEvent extends Event {
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Codes")
+    @Description("Color and formatting codes found in the input")
+    int codes;
+
+    @Label("Style Runs")
+    @Description("Styled literals emitted")
+    int styleRuns;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    public void finish(int inputLength, int codes, int styleRuns, boolean cacheHit) {
+        end();
+        if (shouldCommit()) {
+            this.inputLength = inputLength;
+            this.codes = codes;
+            this.styleRuns = styleRuns;
+            this.cacheHit = cacheHit;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.colorcodesmod.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on counters for the color pipeline, shown by {@code /colorcodes stats} and the chat
+ * overlay.
+ * <p>
+ * Every counter is a {@link LongAdder} and parse times go into a {@link LatencyHistogram}, so
+ * recording from the render thread and the workers never contends on a lock. Rates are
+ * averages since the last reset.
+ */
+public final class PipelineMetrics {
+    private static final LongAdder MESSAGES = new LongAdder();
+    private static final LongAdder CHARACTERS = new LongAdder();
+    private static final LongAdder CACHE_HITS = new LongAdder();
+    // Parse times of cache misses; hits cost a map lookup and would only drown the percentiles
+    private static final LatencyHistogram PARSE_TIMES = new LatencyHistogram();
+
+    private static final LongAdder JOBS_STARTED = new LongAdder();
+    private static final LongAdder JOBS_DROPPED = new LongAdder();
+    private static final LongAdder JOBS_COALESCED = new LongAdder();
+
+    private static volatile long resetAt = System.nanoTime();
+
+    private PipelineMetrics() {
+    }
+
+    public static void recordParse(int characters, long nanos, boolean cacheHit) {
+        MESSAGES.increment();
+        CHARACTERS.add(characters);
+        if (cacheHit) {
+            CACHE_HITS.increment();
+        } else {
+            PARSE_TIMES.record(nanos);
+        }
+    }
+
+    public static void jobStarted() {
+        JOBS_STARTED.increment();
+    }
+
+    // A job whose result was thrown away, or that was never run because the queue was full
+    public static void jobDropped() {
+        JOBS_DROPPED.increment();
+    }
+
+    // A pending job replaced by a newer submission before it ran
+    public static void jobCoalesced() {
+        JOBS_COALESCED.increment();
+    }
+
+    public static Snapshot snapshot() {
+        long messages = MESSAGES.sum();
+        double seconds = Math.max(1e-9, (System.nanoTime() - resetAt) / 1e9);
+        return new Snapshot(
+            messages,
+            CHARACTERS.sum() / seconds,
+            PARSE_TIMES.percentile(0.5),
+            PARSE_TIMES.percentile(0.99),
+            messages > 0 ? (double) CACHE_HITS.sum() / messages : 0,
+            JOBS_STARTED.sum(),
+            JOBS_DROPPED.sum(),
+            JOBS_COALESCED.sum()
+        );
+    }
+
+    public static void reset() {
+        MESSAGES.reset();
+        CHARACTERS.reset();
+        CACHE_HITS.reset();
+        PARSE_TIMES.reset();
+        JOBS_STARTED.reset();
+        JOBS_DROPPED.reset();
+        JOBS_COALESCED.reset();
+        resetAt = System.nanoTime();
+    }
+
+    /**
+     * Point-in-time copy of the counters. Parse times are in nanoseconds.
+     */
+    public record Snapshot(long messages, double charactersPerSecond, long parseP50Nanos, long parseP99Nanos,
+                           double cacheHitRatio, long jobsStarted, long jobsDropped, long jobsCoalesced) {
+        // Compact one-line-per-group form used by the command and the overlay
+        public String[] lines() {
+            return new String[] {
+                String.format("Messages: %d (%.0f chars/s)", messages, charactersPerSecond),
+                String.format("Parse p50/p99: %.1f/%.1f µs", parseP50Nanos / 1000.0, parseP99Nanos / 1000.0),
+                String.format("Cache hit ratio: %.1f%%", cacheHitRatio * 100),
+                String.format("Jobs: %d started, %d dropped, %d coalesced", jobsStarted, jobsDropped, jobsCoalesced)
+            };
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.colorcodesmod.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for one run of the chat input text processor.
+ * <p>
+ * The codes and style runs describe what the processed text parses into. They take a parse
+ * cache lookup, or a parse, to work out, so the caller only does that once {@link #finish()}
+ * has said the event will be recorded.
+ */
+@Name("colorcodesmod.TextProcess")
+@Label("Chat Input Processing")
+@Description("Rewriting the chat input text")
+@Category({"Color Codes Mod", "Parsing"})
+@Threshold("100 us")
+@StackTrace(false)
+public class TextProcessEvent extends Event {
+    @Label("Input Length")
+    int inputLength;
+
+    @Label("Output Length")
+    int outputLength;
+
+    @Label("Changed")
+    boolean changed;
+
+    @Label("Codes")
+    @Description("Color and formatting codes found in the output")
+    int codes;
+
+    @Label("Style Runs")
+    @Description("Styled literals the output parses into")
+    int styleRuns;
+
+    @Label("Cache Hit")
+    @Description("Whether the output was already in the parse cache")
+    boolean cacheHit;
+
+    // Ends the event; returns true when it will be recorded, which commit() then does
+    public boolean finish() {
+        end();
+        return shouldCommit();
+    }
+
+    public void commit(int inputLength, int outputLength, boolean changed, int codes, int styleRuns, boolean cacheHit) {
+        this.inputLength = inputLength;
+        this.outputLength = outputLength;
+        this.changed = changed;
+        this.codes = codes;
+        this.styleRuns = styleRuns;
+        this.cacheHit = cacheHit;
+        commit();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.colorcodesmod.mixin;
+
+import com.example.colorcodesmod.handler.ChatColorHandler;
+import net.minecraft.client.gui.hud.ChatHud;
+import net.minecraft.client.gui.hud.MessageIndicator;
+import net.minecraft.network.message.MessageSignatureData;
+import net.minecraft.text.Text;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Hands the messages vanilla adds to the chat HUD to the incoming message pipeline. Vanilla has
+ * already run its checks on a message that gets here, and it still adds the message to the chat
+ * log and narrates it whatever the pipeline does.
+ */
+@Mixin(ChatHud.class)
+public abstract class ChatHudMixin {
+    // The one-argument addMessage ends up here as well
+    @Inject(method = "addMessage(Lnet/minecraft/text/Text;Lnet/minecraft/network/message/MessageSignatureData;Lnet/minecraft/client/gui/hud/MessageIndicator;)V",
+        at = @At("HEAD"), cancellable = true)
+    private void colorcodesmod$colorizeMessage(Text message, MessageSignatureData signature, MessageIndicator indicator, CallbackInfo ci) {
+        if (!ChatColorHandler.getInstance().getIncomingMessagePipeline().offer(message, signature, indicator)) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "removeMessage", at = @At("HEAD"))
+    private void colorcodesmod$discardQueuedMessage(MessageSignatureData signature, CallbackInfo ci) {
+        ChatColorHandler.getInstance().getIncomingMessagePipeline().discard(signature);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.colorcodesmod.mixin;
+
+import net.minecraft.client.gui.screen.ChatScreen;
+import net.minecraft.client.gui.widget.TextFieldWidget;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+// The chat input field, remapped like any other reference unlike a reflective lookup by name
+@Mixin(ChatScreen.class)
+public interface ChatScreenAccessor {
+    @Accessor("chatField")
+    TextFieldWidget colorcodesmod$getChatField();
+}
@@ -3,6 +3,7 @@ package com.example.colorcodesmod.screen;
 import com.example.colorcodesmod.ColorCodesMod;
 import com.example.colorcodesmod.config.ConfigManager;
 import com.example.colorcodesmod.config.ServerConfig;
+import com.example.colorcodesmod.handler.ChatColorHandler;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
@@ -11,41 +12,70 @@ import net.minecraft.client.gui.widget.CheckboxWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.client.gui.widget.TextWidget;
 import net.minecraft.screen.ScreenTexts;
+import net.minecraft.text.OrderedText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
+import net.minecraft.util.Util;
 
-import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ColorConfigScreen extends Screen {
     private static final int BUTTON_WIDTH = 150;
     private static final int BUTTON_HEIGHT = 20;
     private static final int SPACING = 5;
+    private static final int PREVIEW_WIDTH = 300;
+    private static final int PREVIEW_MAX_LINES = 6;
+    // Typing only re-parses the preview once it has paused for this long
+    private static final long PREVIEW_DEBOUNCE_MILLIS = 75;
     
     private final Screen parent;
     
     private TextFieldWidget previewTextField;
-    private TextWidget previewTextWidget;
+    private int previewX;
+    private int previewY;
+    
+    // Wrapped preview of the current preview text, memoized per combination of enabled syntaxes
+    private final Map<Integer, List<OrderedText>> previewLayouts = new HashMap<>();
+    private String previewLayoutsText;
+    private List<OrderedText> previewLines = List.of();
+    // When the preview text last changed, or -1 when the preview is up to date
+    private long previewChangedAt = -1;
     
     private ButtonWidget toggleHexColorButton;
     private ButtonWidget toggleSegmentedHexButton;
+    private ButtonWidget toggleGradientsButton;
+    private ButtonWidget toggleAmpersandHexButton;
+    private ButtonWidget toggleHexTagsButton;
+    private ButtonWidget toggleNamedTagsButton;
+    private ButtonWidget toggleSectionSignButton;
+    private ButtonWidget toggleLegacyColorsOnlyButton;
     private ButtonWidget serverConfigButton;
     private ButtonWidget saveButton;
     private ButtonWidget resetButton;
     
-    private ConfigManager.Config config;
+    // Config the widgets were last updated from; a hot reload swaps in a new instance
+    private ConfigManager.Config shownConfig;
     private ServerConfig serverConfig;
     
     public ColorConfigScreen(Screen parent) {
         super(Text.literal("Color Codes Mod Config"));
         this.parent = parent;
-        this.config = ColorCodesMod.configManager.getConfig();
         this.serverConfig = ColorCodesMod.serverConfig;
     }
     
+    // The live config, read on every use so edits never land on one a reload has replaced
+    private static ConfigManager.Config config() {
+        return ColorCodesMod.configManager.getConfig();
+    }
+    
     @Override
     protected void init() {
         super.init();
         
+        ConfigManager.Config config = config();
+        shownConfig = config;
         int centerX = this.width / 2;
         int startY = 30;
         
@@ -66,17 +96,13 @@ public class ColorConfigScreen extends Screen {
         previewTextField.setChangedListener(this::onPreviewTextChanged);
         addDrawableChild(previewTextField);
         
-        // Preview display area
-        previewTextWidget = new TextWidget(
-            centerX - 150, startY + 30, 300, 60,
-            Text.literal(""),
-            this.textRenderer
-        );
-        addDrawableChild(previewTextWidget);
+        // Preview display area, drawn in render()
+        previewX = centerX - PREVIEW_WIDTH / 2;
+        previewY = startY + 30;
         updatePreviewText();
         
-        // Toggle buttons
-        int buttonStartX = centerX - BUTTON_WIDTH / 2;
+        // Toggle buttons, in two columns
+        int buttonStartX = centerX - BUTTON_WIDTH - SPACING;
         int buttonY = startY + 100;
         
         toggleHexColorButton = ButtonWidget.builder(
@@ -95,10 +121,59 @@ public class ColorConfigScreen extends Screen {
         
         buttonY += BUTTON_HEIGHT + SPACING;
         
+        toggleGradientsButton = ButtonWidget.builder(
+            getToggleButtonText("Gradients", config.enableGradients),
+            button -> toggleGradients()
+        ).dimensions(buttonStartX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleGradientsButton);
+        
+        buttonY += BUTTON_HEIGHT + SPACING;
+        
+        toggleAmpersandHexButton = ButtonWidget.builder(
+            getToggleButtonText("&# Hex Colors", config.enableAmpersandHexColor),
+            button -> toggleAmpersandHex()
+        ).dimensions(buttonStartX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleAmpersandHexButton);
+        
+        buttonY += BUTTON_HEIGHT + SPACING;
+        
+        toggleLegacyColorsOnlyButton = ButtonWidget.builder(
+            getToggleButtonText("Legacy Colors Only", config.legacyColorsOnly),
+            button -> toggleLegacyColorsOnly()
+        ).dimensions(buttonStartX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleLegacyColorsOnlyButton);
+        
+        int rightColumnX = centerX + SPACING;
+        buttonY = startY + 100;
+        
+        toggleHexTagsButton = ButtonWidget.builder(
+            getToggleButtonText("<#> Hex Tags", config.enableHexTags),
+            button -> toggleHexTags()
+        ).dimensions(rightColumnX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleHexTagsButton);
+        
+        buttonY += BUTTON_HEIGHT + SPACING;
+        
+        toggleNamedTagsButton = ButtonWidget.builder(
+            getToggleButtonText("Named Tags", config.enableNamedTags),
+            button -> toggleNamedTags()
+        ).dimensions(rightColumnX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleNamedTagsButton);
+        
+        buttonY += BUTTON_HEIGHT + SPACING;
+        
+        toggleSectionSignButton = ButtonWidget.builder(
+            getToggleButtonText("§ Codes", config.enableSectionSign),
+            button -> toggleSectionSign()
+        ).dimensions(rightColumnX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        addDrawableChild(toggleSectionSignButton);
+        
+        buttonY += BUTTON_HEIGHT + SPACING;
+        
         serverConfigButton = ButtonWidget.builder(
             Text.literal("Server Configuration"),
             button -> openServerConfig()
-        ).dimensions(buttonStartX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
+        ).dimensions(rightColumnX, buttonY, BUTTON_WIDTH, BUTTON_HEIGHT).build();
         addDrawableChild(serverConfigButton);
         
         // Save and reset buttons
@@ -132,14 +207,50 @@ public class ColorConfigScreen extends Screen {
     }
     
     private void toggleHexColor() {
-        config.enableHexColor = !config.enableHexColor;
-        toggleHexColorButton.setMessage(getToggleButtonText("Standard Hex Colors", config.enableHexColor));
+        config().enableHexColor = !config().enableHexColor;
+        toggleHexColorButton.setMessage(getToggleButtonText("Standard Hex Colors", config().enableHexColor));
         updatePreviewText();
     }
     
     private void toggleSegmentedHex() {
-        config.enableSegmentedHexColor = !config.enableSegmentedHexColor;
-        toggleSegmentedHexButton.setMessage(getToggleButtonText("Segmented Hex Colors", config.enableSegmentedHexColor));
+        config().enableSegmentedHexColor = !config().enableSegmentedHexColor;
+        toggleSegmentedHexButton.setMessage(getToggleButtonText("Segmented Hex Colors", config().enableSegmentedHexColor));
+        updatePreviewText();
+    }
+    
+    private void toggleGradients() {
+        config().enableGradients = !config().enableGradients;
+        toggleGradientsButton.setMessage(getToggleButtonText("Gradients", config().enableGradients));
+        updatePreviewText();
+    }
+    
+    private void toggleAmpersandHex() {
+        config().enableAmpersandHexColor = !config().enableAmpersandHexColor;
+        toggleAmpersandHexButton.setMessage(getToggleButtonText("&# Hex Colors", config().enableAmpersandHexColor));
+        updatePreviewText();
+    }
+    
+    private void toggleHexTags() {
+        config().enableHexTags = !config().enableHexTags;
+        toggleHexTagsButton.setMessage(getToggleButtonText("<#> Hex Tags", config().enableHexTags));
+        updatePreviewText();
+    }
+    
+    private void toggleNamedTags() {
+        config().enableNamedTags = !config().enableNamedTags;
+        toggleNamedTagsButton.setMessage(getToggleButtonText("Named Tags", config().enableNamedTags));
+        updatePreviewText();
+    }
+    
+    private void toggleSectionSign() {
+        config().enableSectionSign = !config().enableSectionSign;
+        toggleSectionSignButton.setMessage(getToggleButtonText("§ Codes", config().enableSectionSign));
+        updatePreviewText();
+    }
+    
+    private void toggleLegacyColorsOnly() {
+        config().legacyColorsOnly = !config().legacyColorsOnly;
+        toggleLegacyColorsOnlyButton.setMessage(getToggleButtonText("Legacy Colors Only", config().legacyColorsOnly));
         updatePreviewText();
     }
     
@@ -148,53 +259,88 @@ public class ColorConfigScreen extends Screen {
     }
     
     private void saveConfig() {
-        try {
-            ColorCodesMod.configManager.saveConfig();
-            ColorCodesMod.serverConfig.saveConfig();
-            // In Minecraft 1.20.1, we can't use addMessage, so we'll log it instead
-            ColorCodesMod.LOGGER.info("Config saved successfully!");
-        } catch (IOException e) {
-            ColorCodesMod.LOGGER.error("Failed to save config: {}", e.getMessage());
-        }
+        // Written in the background; failures are logged by the persister
+        ColorCodesMod.configPersister.saveAll();
+        // In Minecraft 1.20.1, we can't use addMessage, so we'll log it instead
+        ColorCodesMod.LOGGER.info("Config save queued");
     }
     
     private void resetConfig() {
-        this.config = new ConfigManager.Config();
-        ColorCodesMod.configManager.getConfig().enabled = config.enabled;
-        ColorCodesMod.configManager.getConfig().enableHexColor = config.enableHexColor;
-        ColorCodesMod.configManager.getConfig().enableSegmentedHexColor = config.enableSegmentedHexColor;
-        ColorCodesMod.configManager.getConfig().showPreview = config.showPreview;
-        ColorCodesMod.configManager.getConfig().previewText = config.previewText;
-        ColorCodesMod.configManager.getConfig().favoriteColors = config.favoriteColors;
+        ConfigManager.Config defaults = new ConfigManager.Config();
+        ConfigManager.Config config = config();
+        config.enabled = defaults.enabled;
+        config.enableHexColor = defaults.enableHexColor;
+        config.enableSegmentedHexColor = defaults.enableSegmentedHexColor;
+        config.enableGradients = defaults.enableGradients;
+        config.enableAmpersandHexColor = defaults.enableAmpersandHexColor;
+        config.enableHexTags = defaults.enableHexTags;
+        config.enableNamedTags = defaults.enableNamedTags;
+        config.enableSectionSign = defaults.enableSectionSign;
+        config.legacyColorsOnly = defaults.legacyColorsOnly;
+        config.showPreview = defaults.showPreview;
+        config.previewText = defaults.previewText;
+        config.favoriteColors = defaults.favoriteColors;
+        
+        showConfig(config);
         
+        // Log the reset instead of using addMessage
+        ColorCodesMod.LOGGER.info("Config reset to defaults!");
+    }
+    
+    // Brings every widget in line with config
+    private void showConfig(ConfigManager.Config config) {
+        shownConfig = config;
         previewTextField.setText(config.previewText);
         toggleHexColorButton.setMessage(getToggleButtonText("Standard Hex Colors", config.enableHexColor));
         toggleSegmentedHexButton.setMessage(getToggleButtonText("Segmented Hex Colors", config.enableSegmentedHexColor));
+        toggleGradientsButton.setMessage(getToggleButtonText("Gradients", config.enableGradients));
+        toggleAmpersandHexButton.setMessage(getToggleButtonText("&# Hex Colors", config.enableAmpersandHexColor));
+        toggleHexTagsButton.setMessage(getToggleButtonText("<#> Hex Tags", config.enableHexTags));
+        toggleNamedTagsButton.setMessage(getToggleButtonText("Named Tags", config.enableNamedTags));
+        toggleSectionSignButton.setMessage(getToggleButtonText("§ Codes", config.enableSectionSign));
+        toggleLegacyColorsOnlyButton.setMessage(getToggleButtonText("Legacy Colors Only", config.legacyColorsOnly));
         updatePreviewText();
-        
-        // Log the reset instead of using addMessage
-        ColorCodesMod.LOGGER.info("Config reset to defaults!");
     }
     
     private void onPreviewTextChanged(String text) {
-        config.previewText = text;
-        updatePreviewText();
+        config().previewText = text;
+        // Re-parsed from render() once typing pauses
+        previewChangedAt = Util.getMeasuringTimeMs();
     }
     
     private void updatePreviewText() {
+        ConfigManager.Config config = config();
         String previewText = config.previewText;
-        // Process the text with hex colors for preview
-        previewText = ColorCodesMod.chatColorHandler.previewHexColors(previewText);
-        // Convert to MutableText for proper rendering
-        net.minecraft.text.MutableText processedText = net.minecraft.text.Text.literal(previewText);
-        processedText = ColorCodesMod.chatColorHandler.processHexColors(processedText);
-        previewTextWidget.setMessage(processedText);
+        if (!previewText.equals(previewLayoutsText)) {
+            previewLayouts.clear();
+            previewLayoutsText = previewText;
+        }
+        
+        // One parse with the toggles as set on this screen; flipping a toggle back reuses the layout
+        previewLines = previewLayouts.computeIfAbsent(ChatColorHandler.flagsOf(config), flags ->
+            this.textRenderer.wrapLines(ColorCodesMod.chatColorHandler.parse(previewText, flags), PREVIEW_WIDTH)
+        );
+        previewChangedAt = -1;
     }
     
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
+        if (config() != shownConfig) {
+            // The file was edited and reloaded while this screen was open
+            showConfig(config());
+        }
+        if (previewChangedAt >= 0 && Util.getMeasuringTimeMs() - previewChangedAt >= PREVIEW_DEBOUNCE_MILLIS) {
+            updatePreviewText();
+        }
+        
         this.renderBackground(context, mouseX, mouseY, delta);
         super.render(context, mouseX, mouseY, delta);
+        
+        int lineY = previewY;
+        for (int i = 0; i < previewLines.size() && i < PREVIEW_MAX_LINES; i++) {
+            context.drawTextWithShadow(this.textRenderer, previewLines.get(i), previewX, lineY, 0xFFFFFF);
+            lineY += this.textRenderer.fontHeight + 1;
+        }
     }
     
     @Override
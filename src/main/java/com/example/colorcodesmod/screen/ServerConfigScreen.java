@@ -9,6 +9,8 @@ import net.minecraft.client.gui.Selectable;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.client.gui.widget.CheckboxWidget;
+import net.minecraft.client.gui.widget.ClickableWidget;
+import net.minecraft.client.gui.widget.ElementListWidget;
 import net.minecraft.client.gui.widget.TextFieldWidget;
 import net.minecraft.client.gui.widget.TextWidget;
 import net.minecraft.screen.ScreenTexts;
@@ -17,12 +19,15 @@ import net.minecraft.util.Formatting;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public class ServerConfigScreen extends Screen {
     private static final int BUTTON_WIDTH = 120;
     private static final int BUTTON_HEIGHT = 20;
     private static final int SPACING = 5;
+    private static final int ROW_HEIGHT = 24;
+    private static final int ROW_WIDTH = 300;
     
     private final Screen parent;
     private List<Element> children = new ArrayList<>();
@@ -33,7 +38,10 @@ public class ServerConfigScreen extends Screen {
     private CheckboxWidget serverEnabledCheckbox;
     private ButtonWidget addServerButton;
     
-    private List<ServerEntry> serverEntries = new ArrayList<>();
+    private TextFieldWidget filterField;
+    private ServerRuleList serverRuleList;
+    // Kept across re-inits (e.g. window resizes)
+    private String filter = "";
     
     private ServerConfig serverConfig;
     
@@ -49,7 +57,6 @@ public class ServerConfigScreen extends Screen {
         
         children.clear();
         selectables.clear();
-        serverEntries.clear();
         
         int centerX = this.width / 2;
         int startY = 30;
@@ -127,12 +134,24 @@ public class ServerConfigScreen extends Screen {
         );
         addDrawableChild(serverListLabel);
         
-        // Populate server entries
-        int entryY = serverListY + 25;
-        for (Map.Entry<String, Boolean> entry : serverConfig.getServerRules().entrySet()) {
-            addServerEntry(entry.getKey(), entry.getValue(), entryY);
-            entryY += 30;
-        }
+        // Only the rows in view are laid out and rendered, and their widgets are created on first view
+        int listTop = serverListY + 25;
+        serverRuleList = new ServerRuleList(listTop, this.height - 40 - listTop);
+        serverRuleList.setRules(serverConfig.getServerRules());
+        serverRuleList.setFilter(filter);
+        addDrawableChild(serverRuleList);
+        
+        filterField = new TextFieldWidget(
+            this.textRenderer, centerX + 10, serverListY, 140, 20,
+            Text.literal("Filter")
+        );
+        filterField.setPlaceholder(Text.literal("Filter...").formatted(Formatting.GRAY));
+        filterField.setText(filter);
+        filterField.setChangedListener(text -> {
+            filter = text;
+            serverRuleList.setFilter(text);
+        });
+        addDrawableChild(filterField);
         
         // Done button
         ButtonWidget doneButton = ButtonWidget.builder(
@@ -142,50 +161,19 @@ public class ServerConfigScreen extends Screen {
         addDrawableChild(doneButton);
     }
     
-    private void addServerEntry(String serverAddress, boolean enabled, int y) {
-        int centerX = this.width / 2;
-        
-        TextWidget serverAddressWidget = new TextWidget(
-            centerX - 150, y, 150, 20,
-            Text.literal(serverAddress),
-            this.textRenderer
-        );
-        addDrawableChild(serverAddressWidget);
-        
-        CheckboxWidget enabledCheckbox = new CheckboxWidget(
-            centerX, y, 20,
-            Text.empty(),
-            this.textRenderer,
-            enabled,
-            (checkbox, checked) -> {}
-        );
-        addDrawableChild(enabledCheckbox);
-        
-        ButtonWidget removeButton = ButtonWidget.builder(
-            Text.literal("Remove"),
-            button -> removeServer(serverAddress)
-        ).dimensions(centerX + 30, y, 80, 20).build();
-        addDrawableChild(removeButton);
-        
-        serverEntries.add(new ServerEntry(serverAddress, enabledCheckbox, removeButton));
-    }
-    
     private void addServer() {
         String serverAddress = serverInputField.getText().trim();
         if (!serverAddress.isEmpty()) {
             boolean enabled = serverEnabledCheckbox.isChecked();
             serverConfig.addServerRule(serverAddress, enabled);
-            
-            // Refresh the screen
-            init();
+            serverRuleList.putRule(serverAddress, enabled);
+            serverInputField.setText("");
         }
     }
     
     private void removeServer(String serverAddress) {
         serverConfig.removeServerRule(serverAddress);
-        
-        // Refresh the screen
-        init();
+        serverRuleList.removeRule(serverAddress);
     }
     
     @Override
@@ -206,15 +194,150 @@ public class ServerConfigScreen extends Screen {
         return true;
     }
     
-    private static class ServerEntry {
+    /**
+     * Scrolling list of the server rules, sorted by address. All rules are kept as lightweight
+     * entries; the list shows the ones matching the filter, and adding or removing a rule only
+     * touches its own row.
+     */
+    private class ServerRuleList extends ElementListWidget<RuleEntry> {
+        private final List<RuleEntry> allEntries = new ArrayList<>();
+        private String filter = "";
+        
+        private ServerRuleList(int y, int height) {
+            super(ServerConfigScreen.this.client, ServerConfigScreen.this.width, height, y, ROW_HEIGHT);
+        }
+        
+        private void setRules(Map<String, Boolean> rules) {
+            allEntries.clear();
+            for (Map.Entry<String, Boolean> rule : rules.entrySet()) {
+                allEntries.add(new RuleEntry(rule.getKey(), rule.getValue()));
+            }
+            allEntries.sort((a, b) -> a.serverAddress.compareTo(b.serverAddress));
+        }
+        
+        private void setFilter(String filter) {
+            this.filter = filter.toLowerCase(Locale.ROOT);
+            List<RuleEntry> visible = new ArrayList<>();
+            for (RuleEntry entry : allEntries) {
+                if (matches(entry)) {
+                    visible.add(entry);
+                }
+            }
+            replaceEntries(visible);
+            setScrollY(0);
+        }
+        
+        private void putRule(String serverAddress, boolean enabled) {
+            int index = indexOf(allEntries, serverAddress);
+            if (index >= 0) {
+                allEntries.get(index).setEnabled(enabled);
+                return;
+            }
+            
+            RuleEntry entry = new RuleEntry(serverAddress, enabled);
+            allEntries.add(-index - 1, entry);
+            if (matches(entry)) {
+                children().add(-indexOf(children(), serverAddress) - 1, entry);
+            }
+        }
+        
+        private void removeRule(String serverAddress) {
+            int index = indexOf(allEntries, serverAddress);
+            if (index >= 0) {
+                removeEntry(allEntries.remove(index));
+            }
+        }
+        
+        private boolean matches(RuleEntry entry) {
+            return filter.isEmpty() || entry.serverAddress.toLowerCase(Locale.ROOT).contains(filter);
+        }
+        
+        // Binary search by address in a sorted entry list; (-(insertion point) - 1) when absent
+        private static int indexOf(List<RuleEntry> entries, String serverAddress) {
+            int low = 0;
+            int high = entries.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int compare = entries.get(mid).serverAddress.compareTo(serverAddress);
+                if (compare < 0) {
+                    low = mid + 1;
+                } else if (compare > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+        
+        @Override
+        public int getRowWidth() {
+            return ROW_WIDTH;
+        }
+    }
+    
+    private class RuleEntry extends ElementListWidget.Entry<RuleEntry> {
         private final String serverAddress;
-        private final CheckboxWidget enabledCheckbox;
-        private final ButtonWidget removeButton;
+        private boolean enabled;
+        // Created when the row is first rendered, so rules that are never scrolled to cost no widgets
+        private CheckboxWidget enabledCheckbox;
+        private ButtonWidget removeButton;
+        private List<ClickableWidget> widgets = List.of();
         
-        public ServerEntry(String serverAddress, CheckboxWidget enabledCheckbox, ButtonWidget removeButton) {
+        private RuleEntry(String serverAddress, boolean enabled) {
             this.serverAddress = serverAddress;
-            this.enabledCheckbox = enabledCheckbox;
-            this.removeButton = removeButton;
+            this.enabled = enabled;
+        }
+        
+        private void setEnabled(boolean enabled) {
+            if (this.enabled != enabled) {
+                this.enabled = enabled;
+                // Recreated with the new state on the next render
+                widgets = List.of();
+                enabledCheckbox = null;
+            }
+        }
+        
+        private void createWidgets() {
+            enabledCheckbox = new CheckboxWidget(
+                0, 0, 20,
+                Text.empty(),
+                textRenderer,
+                enabled,
+                (checkbox, checked) -> {
+                    enabled = checked;
+                    serverConfig.addServerRule(serverAddress, checked);
+                }
+            );
+            removeButton = ButtonWidget.builder(
+                Text.literal("Remove"),
+                button -> removeServer(serverAddress)
+            ).dimensions(0, 0, 80, 20).build();
+            widgets = List.of(enabledCheckbox, removeButton);
+        }
+        
+        @Override
+        public List<? extends Element> children() {
+            return widgets;
+        }
+        
+        @Override
+        public List<? extends Selectable> selectableChildren() {
+            return widgets;
+        }
+        
+        @Override
+        public void render(DrawContext context, int index, int y, int x, int entryWidth, int entryHeight,
+                           int mouseX, int mouseY, boolean hovered, float tickDelta) {
+            if (enabledCheckbox == null) {
+                createWidgets();
+            }
+            
+            context.drawTextWithShadow(textRenderer, textRenderer.trimToWidth(serverAddress, 170), x, y + 6, 0xFFFFFF);
+            enabledCheckbox.setPosition(x + 180, y);
+            enabledCheckbox.render(context, mouseX, mouseY, tickDelta);
+            removeButton.setPosition(x + 210, y);
+            removeButton.render(context, mouseX, mouseY, tickDelta);
         }
     }
 }
@@ -0,0 +1,93 @@
+package com.example.colorcodesmod.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ServerRulesTest {
+    @Test
+    void exactHostBeatsWildcard() {
+        ServerRules rules = rules("*.example.net", false, "play.example.net", true);
+        assertEquals(true, rules.match("play.example.net"));
+        assertEquals(false, rules.match("lobby.example.net"));
+        assertEquals(false, rules.match("a.b.example.net"));
+        // A wildcard only covers subdomains, not the bare domain
+        assertNull(rules.match("example.net"));
+    }
+
+    @Test
+    void deepestWildcardWins() {
+        ServerRules rules = rules("*.example.net", true, "*.eu.example.net", false);
+        assertEquals(true, rules.match("us.example.net"));
+        assertEquals(false, rules.match("a.eu.example.net"));
+        assertEquals(true, rules.match("eu.example.net"));
+    }
+
+    @Test
+    void exactPortBeatsAnyPort() {
+        ServerRules rules = rules("example.net:*", false, "example.net:25566", true);
+        assertEquals(true, rules.match("example.net:25566"));
+        assertEquals(false, rules.match("example.net:25567"));
+        assertEquals(false, rules.match("example.net"));
+
+        ServerRules wildcards = rules("*.example.net:*", false, "*.example.net", true);
+        assertEquals(true, wildcards.match("play.example.net:25565"));
+        assertEquals(false, wildcards.match("play.example.net:25570"));
+    }
+
+    @Test
+    void missingPortMeansTheDefaultPort() {
+        ServerRules rules = rules("Example.NET", true);
+        assertEquals(true, rules.match("example.net:25565"));
+        assertEquals(true, rules.match("EXAMPLE.net."));
+        assertNull(rules.match("example.net:25566"));
+    }
+
+    @Test
+    void narrowestRangeWins() {
+        ServerRules rules = rules("10.0.0.0/8", true, "10.1.0.0/16", false, "10.1.2.0-10.1.2.255", true);
+        assertEquals(true, rules.match("10.2.0.1"));
+        assertEquals(false, rules.match("10.1.9.9"));
+        assertEquals(true, rules.match("10.1.2.3:25570"));
+        assertNull(rules.match("11.0.0.1"));
+        assertNull(rules.match("10.0.0.256"));
+    }
+
+    @Test
+    void exactHostBeatsRange() {
+        ServerRules rules = rules("10.0.0.0/8", false, "10.0.0.1", true);
+        assertEquals(true, rules.match("10.0.0.1"));
+        assertEquals(false, rules.match("10.0.0.2"));
+    }
+
+    @Test
+    void tiesAreDisabledWhateverTheOrder() {
+        assertEquals(false, rules("10.0.0.0/8", true, "10.0.0.0-10.255.255.255", false).match("10.3.3.3"));
+        assertEquals(false, rules("10.0.0.0-10.255.255.255", false, "10.0.0.0/8", true).match("10.3.3.3"));
+        assertEquals(false, rules("example.net", true, "EXAMPLE.net", false).match("example.net"));
+        assertEquals(false, rules("EXAMPLE.net", false, "example.net", true).match("example.net"));
+    }
+
+    @Test
+    void bracketedIpv6() {
+        ServerRules rules = rules("[::1]", true, "[2001:db8::1]:25570", false);
+        assertEquals(true, rules.match("[::1]"));
+        assertEquals(true, rules.match("[::1]:25565"));
+        assertNull(rules.match("[::1]:25566"));
+        assertEquals(false, rules.match("[2001:db8::1]:25570"));
+        assertNull(rules.match("[2001:db8::1]"));
+    }
+
+    // Rules from alternating pattern and value arguments, in that order
+    private static ServerRules rules(Object... patternsAndValues) {
+        Map<String, Boolean> rules = new LinkedHashMap<>();
+        for (int i = 0; i < patternsAndValues.length; i += 2) {
+            rules.put((String) patternsAndValues[i], (Boolean) patternsAndValues[i + 1]);
+        }
+        return ServerRules.compile(rules);
+    }
+}
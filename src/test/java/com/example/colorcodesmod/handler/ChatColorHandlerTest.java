@@ -0,0 +1,79 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.CodeEncoder;
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import com.example.colorcodesmod.core.StyleState;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import net.minecraft.text.TextColor;
+import net.minecraft.util.Formatting;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatColorHandlerTest {
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @Test
+    void modifyingAResultLeavesTheCachedTextAlone() {
+        ChatColorHandler handler = ChatColorHandler.getInstance();
+        Text raw = Text.literal("&cred &9blue");
+
+        MutableText first = handler.processHexColors(raw);
+        ((MutableText) first.getSiblings().get(0)).setStyle(Style.EMPTY).append("!");
+        first.append("extra");
+
+        MutableText second = handler.processHexColors(raw);
+        assertEquals("red blue", second.getString());
+        assertEquals(StyleTable.legacy(12, 0), second.getSiblings().get(0).getStyle());
+    }
+
+    @Test
+    void encodedTextParsesBackToTheSameStyles() {
+        // Nested styles, a hex color, and literal text that reads as a code
+        Text text = Text.literal("plain ")
+            .append(Text.literal("red ").formatted(Formatting.RED)
+                .append(Text.literal("bold &c ").formatted(Formatting.BOLD))
+                .append(Text.literal("teal").setStyle(Style.EMPTY.withColor(TextColor.fromRgb(0x12abcd)))))
+            .append(Text.literal(" #00ff00 back").formatted(Formatting.ITALIC));
+
+        for (CodeEncoder.Format format : CodeEncoder.Format.values()) {
+            if (format == CodeEncoder.Format.LEGACY) {
+                continue;
+            }
+            String encoded = ChatColorHandler.encode(text, format);
+            Text parsed = ChatColorHandler.getInstance().parse(encoded, ColorCodeLexer.ALL_FLAGS);
+            assertEquals(rendered(text), rendered(parsed), format + ": " + encoded);
+        }
+    }
+
+    @Test
+    void legacyEncodingUsesTheNearestLegacyColor() {
+        Text text = Text.literal("a").setStyle(Style.EMPTY.withColor(TextColor.fromRgb(0xff0000)).withBold(true));
+        assertEquals("&4&la", ChatColorHandler.encode(text, CodeEncoder.Format.LEGACY));
+    }
+
+    // One entry per character: the color it is shown in and its StyleState formatting bits
+    private static String rendered(Text text) {
+        StringBuilder rendered = new StringBuilder();
+        text.visit((style, string) -> {
+            int rgb = style.getColor() != null ? style.getColor().getRgb() : -1;
+            int formatting = StyleState.formatting(StyleTable.state(style));
+            for (int i = 0; i < string.length(); i++) {
+                rendered.append(rgb).append('/').append(formatting).append(string.charAt(i)).append(' ');
+            }
+            return Optional.empty();
+        }, Style.EMPTY);
+        return rendered.toString();
+    }
+}
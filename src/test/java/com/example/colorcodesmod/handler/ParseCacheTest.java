@@ -0,0 +1,104 @@
+package com.example.colorcodesmod.handler;
+
+import net.minecraft.text.Text;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParseCacheTest {
+    private static final int FLAGS = 1;
+
+    @Test
+    void countsHitsAndMisses() {
+        ParseCache cache = new ParseCache(8, 1024, 64);
+        assertNull(cache.get("&chello", FLAGS));
+        cache.put("&chello", FLAGS, Text.literal("hello"), 1, 1);
+
+        ParseCache.Entry entry = cache.get("&chello", FLAGS);
+        assertEquals("hello", entry.text().getString());
+        assertEquals(1, entry.codes());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Metrics lookups don't count
+        assertNotNull(cache.peek("&chello", FLAGS));
+        assertNull(cache.peek("other", FLAGS));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedLineOverTheEntryLimit() {
+        ParseCache cache = new ParseCache(2, 1024, 64);
+        add(cache, "a");
+        add(cache, "b");
+        cache.get("a", FLAGS);
+        add(cache, "c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.peek("b", FLAGS));
+        assertNotNull(cache.peek("a", FLAGS));
+        assertNotNull(cache.peek("c", FLAGS));
+    }
+
+    @Test
+    void evictsOverTheCharacterBudget() {
+        ParseCache cache = new ParseCache(16, 10, 10);
+        add(cache, "aaaa");
+        add(cache, "bbbb");
+        // Putting a line again doesn't count its characters twice
+        cache.put("bbbb", FLAGS, Text.literal("bbbb"), 0, 1);
+        assertEquals(0, cache.getEvictions());
+
+        add(cache, "cccc");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.peek("aaaa", FLAGS));
+    }
+
+    @Test
+    void skipsLinesOverTheLengthLimit() {
+        ParseCache cache = new ParseCache(16, 1024, 4);
+        add(cache, "hello");
+        assertEquals(0, cache.size());
+        add(cache, "hell");
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void clearsItselfWhenTheFlagsChange() {
+        ParseCache cache = new ParseCache(16, 1024, 64);
+        add(cache, "a");
+        add(cache, "b");
+
+        assertNull(cache.get("a", FLAGS | 2));
+        assertEquals(0, cache.size());
+        // A parse that started under the old flags isn't stored
+        cache.put("b", FLAGS, Text.literal("b"), 0, 1);
+        assertEquals(0, cache.size());
+        assertNull(cache.peek("a", FLAGS));
+    }
+
+    @Test
+    void invalidateDropsEverything() {
+        ParseCache cache = new ParseCache(16, 1024, 64);
+        add(cache, "a");
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        // Nothing is stored until a lookup has set the flags again
+        cache.put("a", FLAGS, Text.literal("a"), 0, 1);
+        assertEquals(0, cache.size());
+        add(cache, "a");
+        assertEquals(1, cache.size());
+    }
+
+    // Looks the line up and stores it on a miss, the way ChatColorHandler.colorize does
+    private static void add(ParseCache cache, String rawText) {
+        if (cache.get(rawText, FLAGS) == null) {
+            cache.put(rawText, FLAGS, Text.literal(rawText), 0, 1);
+        }
+    }
+}
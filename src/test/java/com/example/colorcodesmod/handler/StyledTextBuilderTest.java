@@ -0,0 +1,92 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.PlainTextContent;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StyledTextBuilderTest {
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @Test
+    void plainLineIsOneLiteral() {
+        MutableText text = build("hello world");
+        assertEquals("hello world", literal(text));
+        assertTrue(text.getSiblings().isEmpty());
+    }
+
+    @Test
+    void oneStyledRunIsOneLiteral() {
+        MutableText text = build("&cred &cstill red");
+        assertEquals("red still red", literal(text));
+        assertEquals(StyleTable.legacy(12, 0), text.getStyle());
+        assertTrue(text.getSiblings().isEmpty());
+    }
+
+    @Test
+    void redundantCodesDontSplitRuns() {
+        assertEquals(List.of("ab", "cd"), siblingStrings(build("&c&ca&cb&l&lc&ld")));
+    }
+
+    @Test
+    void everyStyleChangeIsOneSibling() {
+        MutableText text = build("&cA&9B&cC");
+        assertEquals("", literal(text));
+        assertEquals(Style.EMPTY, text.getStyle());
+        assertEquals(List.of("A", "B", "C"), siblingStrings(text));
+    }
+
+    @Test
+    void siblingsAreMaximalRuns() {
+        Random random = new Random(2);
+        String alphabet = "&&##cl9rx0fF ab<>";
+        for (int round = 0; round < 5_000; round++) {
+            StringBuilder line = new StringBuilder();
+            for (int i = random.nextInt(80); i > 0; i--) {
+                line.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            MutableText text = build(line.toString());
+            List<Text> runs = text.getSiblings().isEmpty() ? List.of(text) : text.getSiblings();
+            for (int i = 0; i < runs.size(); i++) {
+                assertTrue(runs.get(i).getSiblings().isEmpty(), line::toString);
+                assertFalse(literal(runs.get(i)).isEmpty() && runs.size() > 1, line::toString);
+                if (i > 0) {
+                    // Neighbours with the same style would have been one literal
+                    assertNotEquals(runs.get(i - 1).getStyle(), runs.get(i).getStyle(), line::toString);
+                }
+            }
+        }
+    }
+
+    private static MutableText build(String line) {
+        StyledTextBuilder builder = new StyledTextBuilder();
+        ColorCodeLexer.lex(line, 0, line.length(), ColorCodeLexer.ALL_FLAGS, builder.tracker());
+        return builder.build();
+    }
+
+    private static String literal(Text text) {
+        return ((PlainTextContent) text.getContent()).string();
+    }
+
+    private static List<String> siblingStrings(Text text) {
+        return text.getSiblings().stream().map(StyledTextBuilderTest::literal).toList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.colorcodesmod.handler;
+
+import com.example.colorcodesmod.core.ColorCodeLexer;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.text.Style;
+import net.minecraft.text.Text;
+import net.minecraft.text.TextColor;
+import net.minecraft.text.TranslatableTextContent;
+import net.minecraft.util.Formatting;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StyledTextRewriterTest {
+    private static final int FLAGS = ColorCodeLexer.ALL_FLAGS;
+
+    private static ChatColorHandler handler;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        handler = ChatColorHandler.getInstance();
+    }
+
+    @Test
+    void textWithoutCodesIsReturnedAsIs() {
+        Text text = Text.translatable("chat.type.text", Text.literal("Steve"), "plain & simple")
+            .append(Text.literal(" #nothing").formatted(Formatting.BOLD));
+        assertFalse(StyledTextRewriter.containsCode(text, FLAGS));
+        assertSame(text, StyledTextRewriter.rewrite(handler, text, FLAGS));
+    }
+
+    @Test
+    void literalsKeepTheirParentStyle() {
+        Text text = Text.literal("&chello").formatted(Formatting.BOLD);
+        Text rewritten = StyledTextRewriter.rewrite(handler, text, FLAGS);
+
+        assertEquals("hello", rewritten.getString());
+        Style style = styleOf(rewritten, "hello");
+        assertEquals(TextColor.fromFormatting(Formatting.RED), style.getColor());
+        assertTrue(style.isBold());
+    }
+
+    @Test
+    void vanillaChatMessagesAreColorized() {
+        // How vanilla wraps a player's chat message
+        Text text = Text.translatable("chat.type.text", Text.literal("Steve"), Text.literal("&chello"));
+        assertTrue(StyledTextRewriter.containsCode(text, FLAGS));
+
+        Text rewritten = StyledTextRewriter.rewrite(handler, text, FLAGS);
+        TranslatableTextContent content = assertInstanceOf(TranslatableTextContent.class, rewritten.getContent());
+        assertEquals("chat.type.text", content.getKey());
+        assertSame(((TranslatableTextContent) text.getContent()).getArg(0), content.getArg(0));
+
+        Text message = assertInstanceOf(Text.class, content.getArg(1));
+        assertEquals("hello", message.getString());
+        assertEquals(TextColor.fromFormatting(Formatting.RED), styleOf(message, "hello").getColor());
+    }
+
+    @Test
+    void nestedAndStringArgumentsAreColorized() {
+        Text nested = Text.translatable("chat.type.text", "&9Steve",
+            Text.translatable("chat.type.emote", Text.literal("x"), Text.literal("plain ").append("&#00ff00green")));
+        Text rewritten = StyledTextRewriter.rewrite(handler, nested, FLAGS);
+        TranslatableTextContent content = (TranslatableTextContent) rewritten.getContent();
+
+        Text name = assertInstanceOf(Text.class, content.getArg(0));
+        assertEquals(TextColor.fromFormatting(Formatting.BLUE), styleOf(name, "Steve").getColor());
+
+        Text emote = (Text) content.getArg(1);
+        Text inner = (Text) ((TranslatableTextContent) emote.getContent()).getArg(1);
+        assertEquals("plain green", inner.getString());
+        assertEquals(TextColor.fromRgb(0x00ff00), styleOf(inner, "green").getColor());
+    }
+
+    // Style the segment with exactly this string is shown in
+    private static Style styleOf(Text text, String segment) {
+        return text.visit((style, string) -> string.equals(segment) ? Optional.of(style) : Optional.<Style>empty(), Style.EMPTY)
+            .orElseThrow();
+    }
+}